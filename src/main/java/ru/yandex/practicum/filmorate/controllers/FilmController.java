@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,24 +12,26 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Positive;
-import java.util.Collection;
 import java.util.List;
 
+@Validated
 @RestController
 @RequestMapping("/films")
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService service;
+    private final JsonArrayStream jsonArrayStream;
 
     @GetMapping
-    public Collection<Film> getFilms() {
-        return service.getFilms();
+    public ResponseEntity<StreamingResponseBody> getFilms() {
+        return jsonArrayStream.of(service::streamFilms);
     }
 
     @PostMapping
@@ -80,9 +84,16 @@ public class FilmController {
     }
 
     @GetMapping("/search")
-    public List<Film> searchFilms(@RequestParam("query") String query,
-                                  @Valid @Pattern(regexp = "director|title|director,title|title,director")
-                                  @RequestParam("by") String by) {
-        return service.searchFilms(query, by);
+    public ResponseEntity<StreamingResponseBody> searchFilms(
+            @RequestParam("query") String query,
+            @Valid @Pattern(regexp = "director|title|director,title|title,director") @RequestParam("by") String by,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
+        return jsonArrayStream.<Film>of(action -> service.streamSearchResults(query, by, fuzzy, action));
+    }
+
+    @GetMapping("/search/suggest")
+    public List<String> getSearchSuggestions(@RequestParam String prefix,
+                                             @Positive @RequestParam(defaultValue = "10") int count) {
+        return service.getSearchSuggestions(prefix, count);
     }
 }
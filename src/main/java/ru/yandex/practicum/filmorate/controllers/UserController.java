@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,26 +14,34 @@ import ru.yandex.practicum.filmorate.model.Film;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedStreamService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Positive;
-import java.util.Collection;
 import java.util.List;
 
+@Validated
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService service;
     private final FilmService filmService;
+    private final FeedStreamService feedStreamService;
+    private final JsonArrayStream jsonArrayStream;
 
     @GetMapping
-    public Collection<User> getUsers() {
-        return service.getUsers();
+    public ResponseEntity<StreamingResponseBody> getUsers() {
+        return jsonArrayStream.of(service::streamUsers);
     }
 
     @PostMapping
@@ -63,6 +74,13 @@ public class UserController {
         return service.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id,
+                                           @Positive @Max(UserService.MAX_SUGGESTIONS)
+                                           @RequestParam(defaultValue = "10") int count) {
+        return service.getFriendSuggestions(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         return service.getCommonFriends(id, otherId);
@@ -79,7 +97,21 @@ public class UserController {
     }
 
     @GetMapping("/{id}/feed")
-    public List<Event> getUserFeed(@Positive @PathVariable int id) {
-        return service.getUserFeed(id);
+    public List<Event> getUserFeed(@Positive @PathVariable int id,
+                                   @RequestParam(defaultValue = "0") int after,
+                                   @Positive @RequestParam(required = false) Integer limit) {
+        return service.getUserFeed(id, after, limit == null ? Integer.MAX_VALUE : limit);
+    }
+
+    @GetMapping(path = "/{id}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserFeed(@Positive @PathVariable int id,
+                                     @RequestHeader(value = "Last-Event-ID", required = false) Integer lastEventId) {
+        return feedStreamService.subscribe(id, lastEventId);
+    }
+
+    @GetMapping("/{id}/feed/friends")
+    public List<Event> getFriendsFeed(@Positive @PathVariable int id,
+                                      @Positive @RequestParam(defaultValue = "50") int limit) {
+        return service.getFriendsFeed(id, limit);
     }
 }
@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.feed.FeedListener;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Трансляция ленты пользователя через Server-Sent Events. Новые события рассылаются подписчикам
+    сразу после записи в базу, при переподключении с Last-Event-ID пропущенные события
+    дочитываются из базы. Запись событий только кладет их в очередь подписки, в сокет они
+    отправляются в отдельном потоке. Подписка, очередь которой переполнилась, закрывается,
+    клиент может переподключиться с Last-Event-ID
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FeedStreamService implements FeedListener {
+    private final UserStorage userStorage;
+    private final FeedStorage feedStorage;
+
+    @Value("${filmorate.feed.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+    @Value("${filmorate.feed.stream.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private final Map<Integer, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private ExecutorService sender;
+
+    /*
+        Каждая подписка отправляет события не больше чем в одном потоке за раз,
+        поэтому число потоков не превышает числа подписок
+     */
+    @PostConstruct
+    public void start() {
+        sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "feed-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+
+    /*
+        Подписка регистрируется до чтения пропущенных событий, поэтому события, записанные
+        во время чтения, не теряются: они откладываются и отправляются после пропущенных,
+        а повторно полученные отбрасываются по id
+     */
+    public SseEmitter subscribe(int userId, Integer lastEventId) {
+        validateUser(userId);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(userId, emitter, lastEventId != null);
+        subscriptions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+        if (lastEventId != null) {
+            subscription.finishReplay(feedStorage.getUserFeed(userId, lastEventId, Integer.MAX_VALUE));
+        }
+        log.debug("Пользователь с id={} подписан на ленту.", userId);
+        return emitter;
+    }
+
+    @Override
+    public void onEvents(List<Event> events) {
+        for (Event event : events) {
+            Set<Subscription> userSubscriptions = subscriptions.get(event.getUserId());
+            if (userSubscriptions != null) {
+                userSubscriptions.forEach(subscription -> subscription.send(event));
+            }
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (id, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    /*
+        Пока дочитываются пропущенные события, новые копятся в очереди и отправляются после них.
+        Отправка в сокет и закрытие эмиттера выполняются только в потоках sender: методы эмиттера
+        синхронизированы, и зависший клиент не должен задерживать запись ленты
+     */
+    private class Subscription {
+        private final int userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean replaying;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private int lastSentId;
+
+        private Subscription(int userId, SseEmitter emitter, boolean replaying) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.replaying = replaying;
+        }
+
+        private void send(Event event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.warn("Подписка пользователя с id={} на ленту отстала и закрыта.", userId);
+                close(null);
+                return;
+            }
+            if (!replaying) {
+                scheduleDrain();
+            }
+        }
+
+        private void finishReplay(List<Event> missed) {
+            missed.forEach(this::emit);
+            replaying = false;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            Event event;
+            while (!closed.get() && (event = queue.poll()) != null) {
+                emit(event);
+            }
+            draining.set(false);
+            if (!closed.get() && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void emit(Event event) {
+            if (closed.get() || event.getEventId() <= lastSentId) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getEventId()))
+                        .data(event, MediaType.APPLICATION_JSON));
+                lastSentId = event.getEventId();
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+            }
+        }
+
+        private void close(Throwable error) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            unsubscribe(this);
+            queue.clear();
+            sender.execute(() -> {
+                if (error == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(error);
+                }
+            });
+        }
+    }
+
+    private void validateUser(int id) {
+        if (!userStorage.exists(id)) {
+            throw new UserNotFoundException("Пользователь с id=" + id + " не найден.");
+        }
+    }
+}
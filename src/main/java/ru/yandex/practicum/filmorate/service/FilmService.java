@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventOperation;
 import ru.yandex.practicum.filmorate.model.EventType;
@@ -15,6 +17,7 @@ import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +29,8 @@ public class FilmService {
     private final GenreStorage genreStorage;
     private final FeedStorage feedStorage;
 
-    public List<Film> getFilms() {
-        return storage.getAll();
+    public void streamFilms(Consumer<Film> action) {
+        storage.streamAll(action);
     }
 
     public Film add(Film film) {
@@ -39,15 +42,15 @@ public class FilmService {
     }
 
     public void addLike(int filmId, int userId) {
-        storage.getFilmById(filmId);
-        userStorage.getUserById(userId);
+        validateFilm(filmId);
+        validateUser(userId);
         likeStorage.addLike(filmId, userId);
         addEvent(userId, EventOperation.ADD, filmId);
     }
 
     public void deleteLike(int filmId, int userId) {
-        storage.getFilmById(filmId);
-        userStorage.getUserById(userId);
+        validateFilm(filmId);
+        validateUser(userId);
         likeStorage.deleteLike(filmId, userId);
         addEvent(userId, EventOperation.REMOVE, filmId);
     }
@@ -61,8 +64,12 @@ public class FilmService {
         return storage.getDirectorsFilms(directorId, sortBy);
     }
 
-    public List<Film> searchFilms(String query, String by) {
-        return storage.search(query, by);
+    public void streamSearchResults(String query, String by, boolean fuzzy, Consumer<Film> action) {
+        storage.streamSearch(query, by, fuzzy, action);
+    }
+
+    public List<String> getSearchSuggestions(String prefix, int count) {
+        return storage.getSearchSuggestions(prefix, count);
     }
 
     public void delete(int id) {
@@ -71,13 +78,13 @@ public class FilmService {
 
 
     public List<Film> getCommonFilms(int userId, int friendId) {
-        userStorage.getUserById(userId);
-        userStorage.getUserById(friendId);
+        validateUser(userId);
+        validateUser(friendId);
         return storage.getCommonFilms(userId, friendId);
     }
 
     public List<Film> getRecommendations(int userId) {
-        userStorage.getUserById(userId);
+        validateUser(userId);
         return storage.getRecommendations(userId);
     }
 
@@ -97,4 +104,16 @@ public class FilmService {
                 .timestamp(Instant.now().toEpochMilli())
                 .build());
     }
+
+    private void validateFilm(int id) {
+        if (!storage.exists(id)) {
+            throw new FilmNotFoundException("Фильм с id " + id + " не существует");
+        }
+    }
+
+    private void validateUser(int id) {
+        if (!userStorage.exists(id)) {
+            throw new UserNotFoundException("Пользователь с id=" + id + " не найден.");
+        }
+    }
 }
@@ -2,12 +2,15 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventOperation;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCache;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.reviewlikes.ReviewLikesStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
@@ -23,10 +26,12 @@ public class ReviewService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final FeedStorage feedStorage;
+    private final ReviewCache reviewCache;
 
     public Review add(Review review) {
         validateUserAndFilm(review);
         Review addedReview = reviewStorage.add(review);
+        reviewCache.update(addedReview);
         addEvent(addedReview.getUserId(), EventOperation.ADD, addedReview.getReviewId());
         return addedReview;
     }
@@ -34,6 +39,7 @@ public class ReviewService {
     public Review update(Review review) {
         validateUserAndFilm(review);
         Review addedReview = reviewStorage.update(review);
+        reviewCache.update(addedReview);
         addEvent(addedReview.getUserId(), EventOperation.UPDATE, addedReview.getReviewId());
         return addedReview;
     }
@@ -42,40 +48,55 @@ public class ReviewService {
         Review review = reviewStorage.getReviewById(id);
         addEvent(review.getUserId(), EventOperation.REMOVE, review.getReviewId());
         reviewStorage.delete(id);
+        reviewCache.remove(review);
     }
 
     public Review getReviewById(int id) {
         return reviewStorage.getReviewById(id);
     }
 
+    /*
+        Список из кэша отдается без проверки фильма: при удалении фильма его список удаляется из кэша
+     */
     public List<Review> getReviewByFilmId(int filmId, int count) {
-        if (filmId != 0) filmStorage.getFilmById(filmId);
-        return reviewStorage.getSomeReviews(filmId, count);
+        List<Review> cached = reviewCache.get(filmId, count);
+        if (cached != null) {
+            return cached;
+        }
+        if (filmId != ReviewCache.ALL_FILMS) validateFilm(filmId);
+        long version = reviewCache.getVersion();
+        List<Review> reviews = reviewStorage.getSomeReviews(filmId, count);
+        reviewCache.put(filmId, count, reviews, version);
+        return reviews;
     }
 
     public void addLike(int reviewId, int userId) {
-        userStorage.getUserById(userId);
+        validateUser(userId);
         reviewLikesStorage.addLike(reviewId, userId, true);
+        reviewCache.update(reviewStorage.getReviewById(reviewId));
     }
 
     public void addDislike(int reviewId, int userId) {
-        userStorage.getUserById(userId);
+        validateUser(userId);
         reviewLikesStorage.addLike(reviewId, userId, false);
+        reviewCache.update(reviewStorage.getReviewById(reviewId));
     }
 
     public void deleteLike(int reviewId, int userId) {
-        userStorage.getUserById(userId);
+        validateUser(userId);
         reviewLikesStorage.deleteLike(reviewId, userId, true);
+        reviewCache.update(reviewStorage.getReviewById(reviewId));
     }
 
     public void deleteDislike(int reviewId, int userId) {
-        userStorage.getUserById(userId);
+        validateUser(userId);
         reviewLikesStorage.deleteLike(reviewId, userId, false);
+        reviewCache.update(reviewStorage.getReviewById(reviewId));
     }
 
     private void validateUserAndFilm(Review review) {
-        filmStorage.getFilmById(review.getFilmId());
-        userStorage.getUserById(review.getUserId());
+        validateFilm(review.getFilmId());
+        validateUser(review.getUserId());
     }
 
     private void addEvent(int userId, EventOperation operation, int eventId) {
@@ -87,4 +108,16 @@ public class ReviewService {
                 .timestamp(Instant.now().toEpochMilli())
                 .build());
     }
+
+    private void validateFilm(int id) {
+        if (!filmStorage.exists(id)) {
+            throw new FilmNotFoundException("Фильм с id " + id + " не существует");
+        }
+    }
+
+    private void validateUser(int id) {
+        if (!userStorage.exists(id)) {
+            throw new UserNotFoundException("Пользователь с id=" + id + " не найден.");
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventOperation;
 import ru.yandex.practicum.filmorate.model.EventType;
@@ -10,7 +12,11 @@ import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -18,8 +24,30 @@ public class UserService {
     private final UserStorage storage;
     private final FeedStorage feedStorage;
 
-    public List<User> getUsers() {
-        return storage.getAll();
+    @Value("${filmorate.friends.suggestions.cache-size:10000}")
+    private int suggestionsCacheSize;
+
+    /*
+        В кэше хранится не больше MAX_SUGGESTIONS возможных друзей пользователя,
+        поэтому запрос большего числа отклоняется контроллером
+     */
+    public static final int MAX_SUGGESTIONS = 100;
+
+    /*
+        Не больше suggestionsCacheSize списков, давно не читавшиеся вытесняются.
+        suggestionsVersion растет при каждом сбросе кэша: список, вычисленный до сброса, в кэш не попадает
+     */
+    private final Map<Integer, List<Integer>> suggestionsCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Integer>> eldest) {
+                    return size() > suggestionsCacheSize;
+                }
+            });
+    private long suggestionsVersion;
+
+    public void streamUsers(Consumer<User> action) {
+        storage.streamAll(action);
     }
 
     public User getUserById(int id) {
@@ -35,37 +63,87 @@ public class UserService {
     }
 
     public void addFriend(int userId, int friendId) {
-        getUserById(userId);
-        getUserById(friendId);
+        validateUser(userId);
+        validateUser(friendId);
         storage.addFriend(userId, friendId);
+        feedStorage.resetFriendsFeed(userId);
+        invalidateSuggestions(userId);
         addEvent(userId, EventOperation.ADD, friendId);
     }
 
     public void deleteFriend(int userId, int friendId) {
-        getUserById(userId);
-        getUserById(friendId);
+        validateUser(userId);
+        validateUser(friendId);
         storage.deleteFriend(userId, friendId);
+        feedStorage.resetFriendsFeed(userId);
+        invalidateSuggestions(userId);
         addEvent(userId, EventOperation.REMOVE, friendId);
     }
 
     public List<User> getFriends(int id) {
-        getUserById(id);
+        validateUser(id);
         return storage.getFriends(id);
     }
 
     public List<User> getCommonFriends(int id, int otherId) {
-        getUserById(id);
-        getUserById(otherId);
+        validateUser(id);
+        validateUser(otherId);
         return storage.getCommonFriends(id, otherId);
     }
 
     public void delete(int id) {
         storage.delete(id);
+        feedStorage.resetFriendsFeed(id);
+        synchronized (suggestionsCache) {
+            suggestionsVersion++;
+            suggestionsCache.clear();
+        }
     }
 
-    public List<Event> getUserFeed(int userId) {
-        getUserById(userId);
-        return feedStorage.getUserFeed(userId);
+    public List<Event> getUserFeed(int userId, int afterId, int limit) {
+        validateUser(userId);
+        return feedStorage.getUserFeed(userId, afterId, limit);
+    }
+
+    /*
+        Возможные друзья по числу общих друзей. Список id кэшируется для каждого пользователя,
+        пользователи загружаются из базы одним запросом. Список вычисляется без блокировки кэша,
+        чтобы запрос к базе не задерживал остальных пользователей
+     */
+    public List<User> getFriendSuggestions(int id, int count) {
+        validateUser(id);
+        List<Integer> ids = suggestionsCache.get(id);
+        if (ids == null) {
+            long version;
+            synchronized (suggestionsCache) {
+                version = suggestionsVersion;
+            }
+            ids = storage.getFriendSuggestionIds(id, MAX_SUGGESTIONS);
+            synchronized (suggestionsCache) {
+                if (version == suggestionsVersion) {
+                    List<Integer> cached = suggestionsCache.putIfAbsent(id, ids);
+                    ids = cached != null ? cached : ids;
+                }
+            }
+        }
+        return storage.getUsersByIds(ids.subList(0, Math.min(count, ids.size())));
+    }
+
+    public List<Event> getFriendsFeed(int userId, int limit) {
+        validateUser(userId);
+        return feedStorage.getFriendsFeed(userId, limit);
+    }
+
+    /*
+        Список друзей пользователя входит в обход для него самого и для всех, кто добавил его в друзья
+     */
+    private void invalidateSuggestions(int userId) {
+        List<Integer> followerIds = storage.getFollowerIds(userId);
+        synchronized (suggestionsCache) {
+            suggestionsVersion++;
+            suggestionsCache.remove(userId);
+            followerIds.forEach(suggestionsCache::remove);
+        }
     }
 
     private void addEvent(int userId, EventOperation operation, int eventId) {
@@ -77,4 +155,10 @@ public class UserService {
                 .timestamp(Instant.now().toEpochMilli())
                 .build());
     }
+
+    private void validateUser(int id) {
+        if (!storage.exists(id)) {
+            throw new UserNotFoundException("Пользователь с id=" + id + " не найден.");
+        }
+    }
 }
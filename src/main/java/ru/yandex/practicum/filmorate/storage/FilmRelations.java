@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+    Запись связей фильма с жанрами и режиссерами. Текущие связи сравниваются с новыми,
+    удаляются и добавляются только отличающиеся, каждое изменение - одним пакетным запросом
+ */
+public final class FilmRelations {
+    private FilmRelations() {
+    }
+
+    /*
+        Заменяет связи фильма filmId в таблице table на ids, возвращает ids без повторов в исходном порядке
+     */
+    public static List<Integer> replace(JdbcTemplate jdbcTemplate, String table, String column,
+                                        int filmId, List<Integer> ids) {
+        Set<Integer> desired = new LinkedHashSet<>(ids);
+        Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "select " + column + " from " + table + " where film_id = ?", Integer.class, filmId));
+        List<Object[]> deleted = existing.stream()
+                .filter(id -> !desired.contains(id))
+                .map(id -> new Object[]{filmId, id})
+                .collect(Collectors.toList());
+        List<Object[]> inserted = desired.stream()
+                .filter(id -> !existing.contains(id))
+                .map(id -> new Object[]{filmId, id})
+                .collect(Collectors.toList());
+        if (!deleted.isEmpty()) {
+            jdbcTemplate.batchUpdate("delete from " + table + " where film_id = ? and " + column + " = ?", deleted);
+        }
+        if (!inserted.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into " + table + " (film_id, " + column + ") values (?, ?)", inserted);
+        }
+        return new ArrayList<>(desired);
+    }
+}
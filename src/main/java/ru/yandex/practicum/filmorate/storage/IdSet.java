@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/*
+    Множество существующих id сущностей в памяти для проверок без запросов к базе.
+    Хранится битовой картой, индекс бита - id. При промахе наличие проверяется по базе,
+    на случай записей, добавленных в обход приложения
+ */
+public class IdSet {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet ids = new BitSet();
+
+    public void load(Collection<Integer> loaded) {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            loaded.forEach(ids::set);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(int id) {
+        lock.writeLock().lock();
+        try {
+            ids.set(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            ids.clear(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id, IntPredicate existsInDb) {
+        if (contains(id)) {
+            return true;
+        }
+        if (id >= 0 && existsInDb.test(id)) {
+            add(id);
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/*
+    Операции над отсортированными массивами id для индексов в памяти. Массивы не изменяются,
+    вставка и удаление возвращают новый массив, null означает пустой массив
+ */
+public final class SortedIntArrays {
+    private SortedIntArrays() {
+    }
+
+    public static int[] insert(int[] values, int value) {
+        if (values == null) {
+            return new int[]{value};
+        }
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        position = -position - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    public static int[] remove(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+
+    /*
+        Пересечение слиянием за O(n + m)
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] == second[j]) {
+                result[size++] = first[i];
+                i++;
+                j++;
+            } else if (first[i] < second[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
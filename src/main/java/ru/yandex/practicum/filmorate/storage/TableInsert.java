@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Вставка строк в таблицу с генерируемым id. Запрос строится один раз при создании
+    по заданному списку столбцов, без чтения метаданных таблицы, и после этого
+    используется из разных потоков
+ */
+public class TableInsert {
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpleJdbcInsert insert;
+    private final String[] columns;
+    private final String sqlQuery;
+
+    TableInsert(JdbcTemplate jdbcTemplate, String table, String... columns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.columns = columns;
+        insert = new SimpleJdbcInsert(jdbcTemplate);
+        insert.withTableName(table)
+                .usingColumns(columns)
+                .usingGeneratedKeyColumns("id")
+                .withoutTableColumnMetaDataAccess();
+        insert.compile();
+        sqlQuery = insert.getInsertString();
+    }
+
+    public int insert(Map<String, Object> row) {
+        return insert.executeAndReturnKey(row).intValue();
+    }
+
+    /*
+        Пакетная вставка одним запросом, возвращает id строк в порядке rows
+     */
+    public int[] insertBatch(List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sqlQuery, new String[]{"id"})) {
+                for (Map<String, Object> row : rows) {
+                    for (int i = 0; i < columns.length; i++) {
+                        statement.setObject(i + 1, row.get(columns[i]));
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                int[] ids = new int[rows.size()];
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < ids.length && keys.next(); i++) {
+                        ids[i] = keys.getInt(1);
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+}
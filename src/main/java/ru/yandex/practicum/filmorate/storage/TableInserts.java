@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Общие подготовленные вставки для таблиц с генерируемым id, создаются один раз при запуске
+ */
+@Component
+@RequiredArgsConstructor
+public class TableInserts {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, TableInsert> inserts = new HashMap<>();
+
+    @PostConstruct
+    public void compile() {
+        register("films", "name", "description", "release_date", "duration", "mpa_id");
+        register("users", "email", "login", "name", "birthday");
+        register("reviews", "content", "is_positive", "user_id", "film_id");
+        register("directors", "name");
+        register("events", "timestamp", "user_id", "event_type", "operation", "entity_id");
+    }
+
+    public TableInsert get(String table) {
+        TableInsert insert = inserts.get(table);
+        if (insert == null) {
+            throw new IllegalArgumentException("Нет подготовленной вставки для таблицы " + table);
+        }
+        return insert;
+    }
+
+    private void register(String table, String... columns) {
+        inserts.put(table, new TableInsert(jdbcTemplate, table, columns));
+    }
+}
@@ -4,23 +4,32 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.DirectorNotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.FilmRelations;
+import ru.yandex.practicum.filmorate.storage.TableInserts;
+import ru.yandex.practicum.filmorate.storage.search.FilmSearchIndex;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class DirectorDbStorage implements DirectorStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final TableInserts tableInserts;
+    private final FilmSearchIndex filmSearchIndex;
 
     @Override
     public List<Director> getAll() {
@@ -40,37 +49,32 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public Director addDirector(Director director) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("directors")
-                .usingGeneratedKeyColumns("id");
-        int id = simpleJdbcInsert.executeAndReturnKey(directorToRow(director)).intValue();
-        log.info("Добавлен новый режиссер {}.", getDirectorById(id));
-        return getDirectorById(id);
+        int id = tableInserts.get("directors").insert(directorToRow(director));
+        Director addedDirector = new Director(id, director.getName());
+        filmSearchIndex.putDirector(id, director.getName());
+        log.info("Добавлен новый режиссер {}.", addedDirector);
+        return addedDirector;
     }
 
     @Override
     public Director updateDirector(Director director) {
-        String sqlQuery = "update directors set id = ?, name = ?";
-        try {
-            getDirectorById(director.getId());
-        } catch (DirectorNotFoundException e) {
+        String sqlQuery = "update directors set name = ? where id = ?";
+        if (jdbcTemplate.update(sqlQuery, director.getName(), director.getId()) == 0) {
             log.debug("Обновление режиссера c неверным id: {}", director.getId());
             throw new DirectorNotFoundException("Режиссер с id " + director.getId() + " не существует");
         }
-        jdbcTemplate.update(sqlQuery, director.getId(), director.getName());
-        return getDirectorById(director.getId());
+        filmSearchIndex.putDirector(director.getId(), director.getName());
+        return director;
     }
 
     @Override
     public void deleteDirector(int id) {
         String sqlQuery = "delete from directors where id = ?";
-        try {
-            getDirectorById(id);
-        } catch (DirectorNotFoundException e) {
+        if (jdbcTemplate.update(sqlQuery, id) == 0) {
             log.debug("Удаление режиссера c неверным id: {}", id);
             throw new DirectorNotFoundException("Режиссер с id " + id + " не существует");
         }
-        jdbcTemplate.update(sqlQuery, id);
+        filmSearchIndex.removeDirector(id);
     }
 
     @Override
@@ -84,22 +88,34 @@ public class DirectorDbStorage implements DirectorStorage {
     }
 
     @Override
-    public void addFilmDirectors(Film film, int filmId) {
-        if (!getFilmDirectors(film.getId()).isEmpty()) {
-            String sqlQuery = "delete from director_films where film_id = ?";
-            jdbcTemplate.update(sqlQuery, filmId);
-        }
-        if (film.getDirectors() == null) {
-            return;
+    public Map<Integer, List<Director>> getFilmsDirectors(Collection<Integer> filmIds) {
+        Map<Integer, List<Director>> filmsDirectors = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return filmsDirectors;
         }
-        String sqlQuery = "insert into director_films(film_id, director_id) " +
-                "values (?, ?)";
-        film.getDirectors().forEach(director -> jdbcTemplate.update(sqlQuery, filmId, director.getId()));
+        String sqlQuery = "select distinct df.film_id, d.* from director_films as df " +
+                "join directors as d on d.id = df.director_id " +
+                "where df.film_id in (" + String.join(",", Collections.nCopies(filmIds.size(), "?")) + ") " +
+                "order by df.film_id, d.id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            filmsDirectors.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>())
+                    .add(directorFromRow(rs, rs.getRow()));
+        }, filmIds.toArray());
+        return filmsDirectors;
+    }
+
+    @Override
+    public void addFilmDirectors(Film film, int filmId) {
+        List<Integer> directorIds = film.getDirectors() == null ? List.of() : film.getDirectors().stream()
+                .map(Director::getId)
+                .collect(Collectors.toList());
+        List<Integer> savedIds = FilmRelations.replace(jdbcTemplate, "director_films", "director_id",
+                filmId, directorIds);
+        AfterCommit.run(() -> filmSearchIndex.setFilmDirectors(filmId, savedIds));
     }
 
     private Map<String, Object> directorToRow(Director director) {
         Map<String, Object> values = new HashMap<>();
-        values.put("id", director.getId());
         values.put("name", director.getName());
         return values;
     }
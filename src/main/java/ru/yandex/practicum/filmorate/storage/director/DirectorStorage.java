@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.storage.director;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface DirectorStorage {
     List<Director> getAll();
@@ -18,5 +20,7 @@ public interface DirectorStorage {
 
     List<Director> getFilmDirectors(int filmId);
 
+    Map<Integer, List<Director>> getFilmsDirectors(Collection<Integer> filmIds);
+
     void addFilmDirectors(Film film, int filmId);
 }
@@ -3,7 +3,6 @@ package ru.yandex.practicum.filmorate.storage.feed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventOperation;
@@ -11,22 +10,24 @@ import ru.yandex.practicum.filmorate.model.EventType;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FeedDbStorage implements FeedStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FeedWriter feedWriter;
+    private final FriendsTimeline friendsTimeline;
 
+    /*
+        Событие записывается в базу асинхронно, пакетом вместе с другими событиями
+     */
     @Override
     public void addEvent(Event event) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("events")
-                .usingGeneratedKeyColumns("id");
-        simpleJdbcInsert.executeAndReturnKey(feedToRow(event)).intValue();
+        feedWriter.add(event);
     }
 
     private Event rowToFeed(ResultSet rs, int rowNum) throws SQLException {
@@ -40,19 +41,41 @@ public class FeedDbStorage implements FeedStorage {
                 .build();
     }
 
-    private Map<String, Object> feedToRow(Event event) {
-        Map<String, Object> values = new HashMap<>();
-        values.put("timestamp", event.getTimestamp());
-        values.put("user_id", event.getUserId());
-        values.put("event_type", event.getEventType());
-        values.put("operation", event.getOperation());
-        values.put("entity_id", event.getEntityId());
-        return values;
-    }
-
     @Override
     public List<Event> getUserFeed(Integer userId) {
-        String sqlQuery = "SELECT * FROM events WHERE user_id = ?";
+        feedWriter.awaitWritten();
+        String sqlQuery = "SELECT * FROM events WHERE user_id = ? ORDER BY id";
         return jdbcTemplate.query(sqlQuery, this::rowToFeed, userId);
     }
+
+    /*
+        Страница ленты после события afterId: поиск по индексу (user_id, id) читает только limit строк
+        независимо от длины истории пользователя
+     */
+    @Override
+    public List<Event> getUserFeed(Integer userId, int afterId, int limit) {
+        feedWriter.awaitWritten();
+        String sqlQuery = "SELECT * FROM events WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::rowToFeed, userId, afterId, limit);
+    }
+
+    /*
+        Последние события друзей: id берутся из ленты друзей, из базы загружаются только сами события
+     */
+    @Override
+    public List<Event> getFriendsFeed(int userId, int limit) {
+        feedWriter.awaitWritten();
+        List<Integer> ids = friendsTimeline.getEventIds(userId, limit);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = "SELECT * FROM events WHERE id IN (" +
+                String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY id";
+        return jdbcTemplate.query(sqlQuery, this::rowToFeed, ids.toArray());
+    }
+
+    @Override
+    public void resetFriendsFeed(int userId) {
+        friendsTimeline.reset(userId);
+    }
 }
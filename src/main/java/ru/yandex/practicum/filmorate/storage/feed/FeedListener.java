@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+/*
+    Получатель событий ленты, уже записанных в базу и получивших id
+ */
+public interface FeedListener {
+    void onEvents(List<Event> events);
+}
@@ -8,4 +8,10 @@ public interface FeedStorage {
     void addEvent(Event event);
 
     List<Event> getUserFeed(Integer userId);
+
+    List<Event> getUserFeed(Integer userId, int afterId, int limit);
+
+    List<Event> getFriendsFeed(int userId, int limit);
+
+    void resetFriendsFeed(int userId);
 }
@@ -0,0 +1,242 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.TableInserts;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/*
+    Асинхронная запись событий ленты. События складываются в ограниченную очередь, фоновый поток
+    записывает их пакетами по batchSize не реже раза в flushIntervalMs миллисекунд. Если очередь остается
+    заполненной дольше offerTimeoutMs, вызывающий поток записывает только свое событие, так очередь
+    не растет без предела. Чтение ленты ждет, пока будут записаны события, добавленные в очередь до него,
+    при остановке приложения очередь записывается полностью
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FeedWriter {
+    private final TableInserts tableInserts;
+    private final ObjectProvider<FeedListener> listeners;
+
+    @Value("${filmorate.feed.batch-size:100}")
+    private int batchSize;
+    @Value("${filmorate.feed.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    @Value("${filmorate.feed.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${filmorate.feed.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    /*
+        queue, enqueued и written меняются под lock: enqueued - число событий, принятых в очередь,
+        written - число событий, извлеченных из очереди и обработанных. События извлекаются и пишутся
+        только под writeLock, поэтому первые written событий очереди уже в базе
+     */
+    private final Lock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Object writeLock = new Object();
+    private Queue<Event> queue;
+    private long enqueued;
+    private long written;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayDeque<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::flushPeriodically, "feed-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        lock.lock();
+        try {
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        flush();
+    }
+
+    public void add(Event event) {
+        if (enqueue(event)) {
+            return;
+        }
+        synchronized (writeLock) {
+            write(List.of(event));
+        }
+    }
+
+    /*
+        Ожидание записи всех событий, добавленных в очередь до вызова. Фоновый поток будится сразу,
+        после остановки приложения очередь записывается вызывающим потоком
+     */
+    public void awaitWritten() {
+        lock.lock();
+        try {
+            long target = enqueued;
+            while (written < target && running) {
+                LockSupport.unpark(flusher);
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!running) {
+            flush();
+        }
+    }
+
+    private boolean enqueue(Event event) {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+            while (queue.size() >= queueCapacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                LockSupport.unpark(flusher);
+                nanos = notFull.awaitNanos(nanos);
+            }
+            queue.add(event);
+            enqueued++;
+            if (queue.size() >= batchSize) {
+                LockSupport.unpark(flusher);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        Запись всех событий из очереди. Пакет извлекается и записывается под writeLock, поэтому события
+        попадают в базу в порядке добавления, а событие, записываемое в обход очереди, ждет не больше пакета
+     */
+    private void flush() {
+        while (flushBatch()) {
+        }
+    }
+
+    private boolean flushBatch() {
+        synchronized (writeLock) {
+            List<Event> batch = poll();
+            if (batch.isEmpty()) {
+                return false;
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                writeEach(batch);
+            } finally {
+                lock.lock();
+                try {
+                    written += batch.size();
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return true;
+        }
+    }
+
+    private List<Event> poll() {
+        lock.lock();
+        try {
+            List<Event> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            while (batch.size() < batchSize && !queue.isEmpty()) {
+                batch.add(queue.poll());
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        Ошибка записи не останавливает фоновый поток, иначе события записывались бы только при остановке
+     */
+    private void flushPeriodically() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Ошибка фоновой записи событий ленты.", e);
+            }
+        }
+    }
+
+    /*
+        Если пакет не записался, например пользователь удален раньше записи его события
+        или событие заполнено не полностью, события записываются по одному, чтобы потерять только ошибочные
+     */
+    private void writeEach(List<Event> batch) {
+        for (Event event : batch) {
+            try {
+                write(List.of(event));
+            } catch (RuntimeException e) {
+                log.error("Не удалось записать событие ленты {}.", event, e);
+            }
+        }
+    }
+
+    private void write(List<Event> events) {
+        int[] ids = tableInserts.get("events").insertBatch(events.stream()
+                .map(FeedWriter::eventToRow)
+                .collect(Collectors.toList()));
+        for (int i = 0; i < ids.length; i++) {
+            events.get(i).setEventId(ids[i]);
+        }
+        log.debug("Записано событий ленты: {}.", events.size());
+        List<Event> written = List.copyOf(events);
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onEvents(written);
+            } catch (RuntimeException e) {
+                log.error("Ошибка обработки событий ленты в {}.", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    private static Map<String, Object> eventToRow(Event event) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("timestamp", event.getTimestamp());
+        values.put("user_id", event.getUserId());
+        values.put("event_type", event.getEventType().name());
+        values.put("operation", event.getOperation().name());
+        values.put("entity_id", event.getEntityId());
+        return values;
+    }
+}
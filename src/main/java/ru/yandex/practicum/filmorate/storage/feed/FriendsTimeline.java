@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/*
+    Лента событий друзей с раздачей при записи: id каждого нового события добавляется в кольцевые
+    буферы всех пользователей, добавивших автора в друзья. Буфер пользователя заполняется из базы
+    при первом чтении и сбрасывается при изменении списка его друзей. События пользователей
+    с числом подписчиков больше maxFollowers не раздаются, а подтягиваются из базы при чтении.
+    Из базы последние capacity событий авторов читаются одним запросом на каждые AUTHORS_BATCH_SIZE авторов
+    по индексу (user_id, id). Хранится не больше maxTimelines буферов, давно не читавшиеся вытесняются
+ */
+@Component
+@RequiredArgsConstructor
+public class FriendsTimeline implements FeedListener {
+    private final JdbcTemplate jdbcTemplate;
+    private final FriendGraph friendGraph;
+
+    private static final int AUTHORS_BATCH_SIZE = 1000;
+
+    @Value("${filmorate.feed.timeline.capacity:200}")
+    private int capacity;
+    @Value("${filmorate.feed.timeline.max-followers:1000}")
+    private int maxFollowers;
+    @Value("${filmorate.feed.timeline.cache-size:10000}")
+    private int maxTimelines;
+
+    /*
+        version растет при каждой раздаче и сбросе: буфер, загруженный из базы до них, не сохраняется,
+        потому что в нем может не хватать раздаваемых событий
+     */
+    private final Map<Integer, RingBuffer> timelines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RingBuffer> eldest) {
+            return size() > maxTimelines;
+        }
+    };
+    private long version;
+
+    @Override
+    public void onEvents(List<Event> events) {
+        Map<Integer, List<Event>> byAuthor = events.stream().collect(Collectors.groupingBy(Event::getUserId));
+        synchronized (timelines) {
+            version++;
+            byAuthor.forEach((authorId, authored) -> {
+                int[] followers = friendGraph.getFollowers(authorId);
+                if (followers.length > maxFollowers) {
+                    return;
+                }
+                for (int followerId : followers) {
+                    RingBuffer timeline = timelines.get(followerId);
+                    if (timeline != null) {
+                        authored.forEach(event -> timeline.add(event.getEventId()));
+                    }
+                }
+            });
+        }
+    }
+
+    public void reset(int userId) {
+        synchronized (timelines) {
+            version++;
+            timelines.remove(userId);
+        }
+    }
+
+    /*
+        id последних limit событий друзей пользователя по возрастанию
+     */
+    public List<Integer> getEventIds(int userId, int limit) {
+        NavigableSet<Integer> ids = new TreeSet<>(Collections.reverseOrder());
+        timeline(userId).copyTo(ids);
+        ids.addAll(latestEvents(friendsOf(userId, true)));
+        return ids.stream()
+                .limit(Math.min(limit, capacity))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /*
+        Буфер загружается без блокировки карты, чтобы запрос к базе не задерживал раздачу событий
+     */
+    private RingBuffer timeline(int userId) {
+        long loadedVersion;
+        synchronized (timelines) {
+            RingBuffer timeline = timelines.get(userId);
+            if (timeline != null) {
+                return timeline;
+            }
+            loadedVersion = version;
+        }
+        RingBuffer loaded = load(userId);
+        synchronized (timelines) {
+            if (loadedVersion != version) {
+                return loaded;
+            }
+            RingBuffer timeline = timelines.putIfAbsent(userId, loaded);
+            return timeline != null ? timeline : loaded;
+        }
+    }
+
+    /*
+        Буфер заполняется событиями друзей, которые раздаются при записи. События популярных друзей
+        в буфер не попадают, они читаются при каждом обращении
+     */
+    private RingBuffer load(int userId) {
+        RingBuffer timeline = new RingBuffer(capacity);
+        latestEvents(friendsOf(userId, false)).descendingIterator().forEachRemaining(timeline::add);
+        return timeline;
+    }
+
+    private List<Integer> friendsOf(int userId, boolean popular) {
+        return Arrays.stream(friendGraph.getFriends(userId))
+                .filter(friendId -> (friendGraph.getFollowers(friendId).length > maxFollowers) == popular)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    /*
+        Последние capacity событий авторов по убыванию id
+     */
+    private NavigableSet<Integer> latestEvents(List<Integer> authorIds) {
+        NavigableSet<Integer> ids = new TreeSet<>(Collections.reverseOrder());
+        for (int from = 0; from < authorIds.size(); from += AUTHORS_BATCH_SIZE) {
+            List<Integer> batch = authorIds.subList(from, Math.min(from + AUTHORS_BATCH_SIZE, authorIds.size()));
+            String sqlQuery = "select id from events where user_id in (" +
+                    String.join(",", Collections.nCopies(batch.size(), "?")) + ") order by id desc limit ?";
+            List<Object> args = new ArrayList<>(batch);
+            args.add(capacity);
+            ids.addAll(jdbcTemplate.queryForList(sqlQuery, Integer.class, args.toArray()));
+            while (ids.size() > capacity) {
+                ids.pollLast();
+            }
+        }
+        return ids;
+    }
+
+    private static class RingBuffer {
+        private final int[] ids;
+        private int next;
+        private int size;
+
+        private RingBuffer(int capacity) {
+            ids = new int[capacity];
+        }
+
+        private synchronized void add(int id) {
+            ids[next] = id;
+            next = (next + 1) % ids.length;
+            size = Math.min(size + 1, ids.length);
+        }
+
+        private synchronized void copyTo(NavigableSet<Integer> target) {
+            for (int i = 0; i < size; i++) {
+                target.add(ids[i]);
+            }
+        }
+    }
+}
@@ -4,187 +4,308 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.IdSet;
+import ru.yandex.practicum.filmorate.storage.TableInserts;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikedFilmsBitmaps;
+import ru.yandex.practicum.filmorate.storage.like.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.like.MinHashIndex;
+import ru.yandex.practicum.filmorate.storage.like.RecommendationEngine;
 import ru.yandex.practicum.filmorate.storage.mpa.RatingMPAStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCache;
+import ru.yandex.practicum.filmorate.storage.search.FilmSearchIndex;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final TableInserts tableInserts;
 
-    private final RatingMPAStorage ratingMPADbStorage;
+    private final RatingMPAStorage ratingMPAStorage;
     private final GenreStorage genreDbStorage;
     private final DirectorStorage directorDbStorage;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final LikesMatrix likesMatrix;
+    private final RecommendationEngine recommendationEngine;
+    private final MinHashIndex minHashIndex;
+    private final LikedFilmsBitmaps likedFilmsBitmaps;
+    private final FilmSearchIndex filmSearchIndex;
+    private final ReviewCache reviewCache;
+
+    private static final String FILM_COLUMNS = "select f.* from films as f ";
+    private static final int HYDRATION_BATCH_SIZE = 1000;
+
+    private final IdSet filmIds = new IdSet();
+
+    @PostConstruct
+    public void loadIds() {
+        filmIds.load(jdbcTemplate.queryForList("select id from films", Integer.class));
+        log.info("Загружены id фильмов: {}.", filmIds.size());
+    }
 
     @Override
     public List<Film> getAll() {
-        String sqlQuery = "select * from films";
-        return jdbcTemplate.query(sqlQuery, this::filmFromRow);
+        String sqlQuery = FILM_COLUMNS + "order by f.id";
+        return hydrate(jdbcTemplate.query(sqlQuery, this::filmFromRow));
+    }
+
+    /*
+        Фильмы читаются страницами по HYDRATION_BATCH_SIZE после последнего прочитанного id и передаются
+        в action после загрузки страницы. Соединение с базой занято только на время запросов страницы,
+        а не пока клиент читает ответ, в памяти одновременно находится не больше одной страницы
+     */
+    @Override
+    public void streamAll(Consumer<Film> action) {
+        String sqlQuery = FILM_COLUMNS + "where f.id > ? order by f.id limit ?";
+        List<Film> page;
+        int lastId = 0;
+        do {
+            page = hydrate(jdbcTemplate.query(sqlQuery, this::filmFromRow, lastId, HYDRATION_BATCH_SIZE));
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == HYDRATION_BATCH_SIZE);
     }
 
     @Override
+    @Transactional
     public Film add(Film film) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("id");
-        int id = simpleJdbcInsert.executeAndReturnKey(filmToRow(film)).intValue();
+        int id = tableInserts.get("films").insert(filmToRow(film));
+        AfterCommit.run(() -> {
+            filmPopularityIndex.putFilm(id, film.getReleaseDate().getYear());
+            filmSearchIndex.putFilm(id, film.getName());
+            filmIds.add(id);
+        });
         directorDbStorage.addFilmDirectors(film, id);
         genreDbStorage.addFilmGenres(film, id);
-        log.info("Добавлен новый фильм {}.", getFilmById(id));
-        return getFilmById(id);
+        film.setId(id);
+        Film addedFilm = withRelations(film);
+        log.info("Добавлен новый фильм {}.", addedFilm);
+        return addedFilm;
     }
 
     @Override
+    @Transactional
     public Film update(Film film) {
         String sqlQuery = "update films set name = ?, description = ?, release_date = ?, " +
                 "duration = ?, mpa_id = ? where id = ?";
-        try {
-            getFilmById(film.getId());
-            jdbcTemplate.update(sqlQuery,
-                    film.getName(),
-                    film.getDescription(),
-                    film.getReleaseDate(),
-                    film.getDuration(),
-                    film.getMpa().getId(),
-                    film.getId());
-            genreDbStorage.addFilmGenres(film, film.getId());
-            directorDbStorage.addFilmDirectors(film, film.getId());
-            log.info("Обновлен фильм {}.", getFilmById(film.getId()));
-            return getFilmById(film.getId());
-        } catch (FilmNotFoundException e) {
+        if (!exists(film.getId())) {
             log.debug("Обновление фильма c неверным id: {}", film.getId());
             throw new FilmNotFoundException("Фильм с id " + film.getId() + " не существует");
         }
+        jdbcTemplate.update(sqlQuery,
+                film.getName(),
+                film.getDescription(),
+                film.getReleaseDate(),
+                film.getDuration(),
+                film.getMpa().getId(),
+                film.getId());
+        AfterCommit.run(() -> {
+            filmPopularityIndex.putFilm(film.getId(), film.getReleaseDate().getYear());
+            filmSearchIndex.putFilm(film.getId(), film.getName());
+        });
+        genreDbStorage.addFilmGenres(film, film.getId());
+        directorDbStorage.addFilmDirectors(film, film.getId());
+        Film updatedFilm = withRelations(film);
+        log.info("Обновлен фильм {}.", updatedFilm);
+        return updatedFilm;
     }
 
     @Override
     public Film getFilmById(int id) {
-        String sqlQuery = "select * from films where id = ?";
+        String sqlQuery = FILM_COLUMNS + "where f.id = ?";
         try {
-            return jdbcTemplate.queryForObject(sqlQuery, this::filmFromRow, id);
+            return hydrate(List.of(jdbcTemplate.queryForObject(sqlQuery, this::filmFromRow, id))).get(0);
         } catch (EmptyResultDataAccessException e) {
             log.debug("Получение фильма с неверным id: {}", id);
             throw new FilmNotFoundException("Фильм с id " + id + " не существует");
         }
     }
 
+    @Override
+    public boolean exists(int id) {
+        return filmIds.contains(id, filmId -> Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists(select 1 from films where id = ?)", Boolean.class, filmId)));
+    }
+
     @Override
     public List<Film> getMostPopular(int size) {
-        String sqlQuery = "select f.* from films as f left join film_likes as l on f.id = l.film_id " +
-                "group by f.id order by count(l.film_id) desc limit ?";
-        return jdbcTemplate.query(sqlQuery, this::filmFromRow, size);
+        return getFilmsByIds(filmPopularityIndex.getMostPopular(size, -1, -1));
     }
 
     @Override
     public List<Film> getDirectorsFilms(int directorId, String sortBy) {
-        String sqlQuerySortedByYear = "select * from films as f left join director_films as df " +
+        String sqlQuerySortedByYear = FILM_COLUMNS + "join director_films as df " +
                 "on f.id = df.film_id where df.director_id = ? " +
                 "order by extract(year from cast(f.release_date as date))";
 
-        String sqlQuerySortedByLikes = "select * from films as f left join film_likes as l on f.id = l.film_id " +
-                "left join director_films as df on f.id = df.film_id where df.director_id = ? " +
-                "group by f.id order by count(l.film_id)";
+        String sqlQuerySortedByLikes = FILM_COLUMNS + "join director_films as df " +
+                "on f.id = df.film_id where df.director_id = ? " +
+                "order by f.likes_count, f.id";
 
         if (sortBy.equals("year")) {
-            return jdbcTemplate.query(sqlQuerySortedByYear, this::filmFromRow, directorId);
+            return hydrate(jdbcTemplate.query(sqlQuerySortedByYear, this::filmFromRow, directorId));
         } else {
-            return jdbcTemplate.query(sqlQuerySortedByLikes, this::filmFromRow, directorId);
+            return hydrate(jdbcTemplate.query(sqlQuerySortedByLikes, this::filmFromRow, directorId));
         }
     }
 
     @Override
     public void delete(int id) {
+        int[] likedBy = likesMatrix.getFilmUsers(id);
         jdbcTemplate.update("delete from films where id = ?", id);
+        filmIds.remove(id);
+        filmPopularityIndex.removeFilm(id);
+        filmSearchIndex.removeFilm(id);
+        reviewCache.removeFilm(id);
+        likesMatrix.removeFilm(id);
+        for (int userId : likedBy) {
+            minHashIndex.refresh(userId);
+            likedFilmsBitmaps.deleteLike(id, userId);
+        }
         log.info("Удален фильм с id={}.", id);
     }
 
     @Override
     public List<Film> getCommonFilms(int userId, int friendId) {
-        String sqlQuery = "select f.* from films as f " +
-                "left join film_likes as fl1 on fl1.film_id = f.id left join film_likes as fl2 " +
-                "on fl2.film_id = f.id left join film_likes as fl3 on fl3.film_id = f.id " +
-                "where fl1.user_id = ? and fl2.user_id = ? group by f.id order by count (fl3.user_id) desc, f.id";
-        return jdbcTemplate.query(sqlQuery, this::filmFromRow, userId, friendId);
+        return getFilmsByIds(likedFilmsBitmaps.getCommonFilms(userId, friendId));
     }
 
     /*
-        Поиск по названию фильма или по режиссеру
+        Поиск по названию фильма или по режиссеру, подходящие id берутся из поискового индекса
      */
     @Override
     public List<Film> search(String query, String by) {
-        String[] splitSearchParameter = by.split(",");
-        if (splitSearchParameter.length == 2) {
-            return jdbcTemplate.query(getSqlQuery(by), this::filmFromRow, query, query);
-        } else {
-            return jdbcTemplate.query(getSqlQuery(by), this::filmFromRow, query);
+        return getFilmsByIds(searchIds(query, by, false));
+    }
+
+    /*
+        Поиск с опечатками: фильмы упорядочены по сходству запроса с названием или именем режиссера
+     */
+    @Override
+    public List<Film> fuzzySearch(String query, String by) {
+        return getFilmsByIds(searchIds(query, by, true));
+    }
+
+    /*
+        Найденные фильмы загружаются и передаются в action пакетами по HYDRATION_BATCH_SIZE
+     */
+    @Override
+    public void streamSearch(String query, String by, boolean fuzzy, Consumer<Film> action) {
+        List<Integer> ids = searchIds(query, by, fuzzy);
+        for (int from = 0; from < ids.size(); from += HYDRATION_BATCH_SIZE) {
+            getFilmsByIds(ids.subList(from, Math.min(from + HYDRATION_BATCH_SIZE, ids.size()))).forEach(action);
         }
     }
 
+    private List<Integer> searchIds(String query, String by, boolean fuzzy) {
+        boolean byTitle = !by.equals("director");
+        boolean byDirector = !by.equals("title");
+        return fuzzy
+                ? filmSearchIndex.fuzzySearch(query, byTitle, byDirector)
+                : filmSearchIndex.search(query, byTitle, byDirector);
+    }
+
+    @Override
+    public List<String> getSearchSuggestions(String prefix, int count) {
+        return filmSearchIndex.suggest(prefix, count);
+    }
+
     @Override
     public List<Film> getRecommendations(int userId) {
-        String sqlQuery = "select * from films where id in (select film_id from film_likes where user_id in " +
-                "(select user_id from (select user_id, count(user_id) as c from film_likes where film_id in " +
-                "(select film_id from film_likes where user_id = ?) " +
-                "and user_id != ? group by user_id order by c limit 1)) " +
-                "and film_id not in (select film_id from film_likes where user_id = ?)) ";
-        return jdbcTemplate.query(sqlQuery, this::filmFromRow, userId, userId, userId);
+        return getFilmsByIds(recommendationEngine.recommend(userId));
     }
 
+    /*
+        Порядок фильмов берется из индекса популярности, из базы загружаются только сами фильмы
+     */
     @Override
     public List<Film> getPopularsGenreAndYear(int limit, int genreId, int year) {
-        String sqlQuery;
-        if (genreId == -1 && year == -1) {
-            return getMostPopular(limit);
-        }
-        if (genreId == -1) {
-            sqlQuery = "select f.* from films as f " +
-                    "left join film_likes as l on f.id = l.film_id " +
-                    "where extract(year from cast(f.release_date AS date)) = ? " +
-                    "group by f.id order by count(l.film_id) desc limit ?";
-            return jdbcTemplate.query(sqlQuery, this::filmFromRow, year, limit);
-        }
-        if (year == -1) {
-            sqlQuery = "select f.* from films as f " +
-                    "left join film_likes as l on f.id = l.film_id " +
-                    "left join film_genres as fg on f.id = fg.film_id " +
-                    "where fg.genre_id = ? " +
-                    "group by f.id order by count(l.film_id) desc limit ?";
-            return jdbcTemplate.query(sqlQuery, this::filmFromRow, genreId, limit);
+        return getFilmsByIds(filmPopularityIndex.getMostPopular(limit, genreId, year));
+    }
+
+    private List<Film> getFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        sqlQuery = "select f.* from films as f " +
-                "left join film_likes as l on f.id = l.film_id " +
-                "left join film_genres as fg on f.id = fg.film_id " +
-                "where fg.genre_id = ? " +
-                "and extract(year from cast(f.release_date AS date)) = ? " +
-                "group by f.id order by count(l.film_id) desc limit ?";
-        return jdbcTemplate.query(sqlQuery, this::filmFromRow, genreId, year, limit);
+        String sqlQuery = FILM_COLUMNS + "where f.id in (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+        Map<Integer, Film> films = jdbcTemplate.query(sqlQuery, this::filmFromRow, ids.toArray()).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return hydrate(ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
     }
 
+    /*
+        Рейтинг MPA берется из кэша справочника, жанры и режиссеры подгружаются
+        позже в hydrate пакетно для всего списка
+     */
     private Film filmFromRow(ResultSet rsFilm, int rowNumFilm) throws SQLException {
+        int mpaId = rsFilm.getInt("mpa_id");
+        RatingMPA mpa = rsFilm.wasNull() ? null : ratingMPAStorage.getRatingMPAById(mpaId);
         return Film.builder()
                 .id(rsFilm.getInt("id"))
                 .name(rsFilm.getString("name"))
                 .description(rsFilm.getString("description"))
                 .releaseDate(rsFilm.getDate("release_date").toLocalDate())
                 .duration(rsFilm.getInt("duration"))
-                .mpa(ratingMPADbStorage.getRatingMPAById(rsFilm.getInt("mpa_id")))
-                .genres(genreDbStorage.getFilmGenres(rsFilm.getInt("id")))
-                .directors(directorDbStorage.getFilmDirectors(rsFilm.getInt("id")))
+                .mpa(mpa)
                 .build();
     }
 
+    /*
+        Фильм после записи собирается из запроса: из базы читаются только рейтинг, жанры и режиссеры,
+        так как в запросе могут быть только их id, а жанры и режиссеры - еще и с повторами
+     */
+    private Film withRelations(Film film) {
+        film.setMpa(ratingMPAStorage.getRatingMPAById(film.getMpa().getId()));
+        return hydrate(List.of(film)).get(0);
+    }
+
+    /*
+        Загрузка жанров и режиссеров для списка фильмов: по два запроса на каждые
+        HYDRATION_BATCH_SIZE фильмов вместо трех запросов на каждый фильм
+     */
+    private List<Film> hydrate(List<Film> films) {
+        for (int from = 0; from < films.size(); from += HYDRATION_BATCH_SIZE) {
+            List<Film> batch = films.subList(from, Math.min(from + HYDRATION_BATCH_SIZE, films.size()));
+            Set<Integer> ids = batch.stream().map(Film::getId).collect(Collectors.toSet());
+            Map<Integer, List<Genre>> genres = genreDbStorage.getFilmsGenres(ids);
+            Map<Integer, List<Director>> directors = directorDbStorage.getFilmsDirectors(ids);
+            batch.forEach(film -> {
+                film.setGenres(genres.getOrDefault(film.getId(), new ArrayList<>()));
+                film.setDirectors(directors.getOrDefault(film.getId(), new ArrayList<>()));
+            });
+        }
+        return films;
+    }
+
     private Map<String, Object> filmToRow(Film film) {
         Map<String, Object> values = new HashMap<>();
         values.put("name", film.getName());
@@ -194,26 +315,4 @@ public class FilmDbStorage implements FilmStorage {
         values.put("mpa_id", film.getMpa().getId());
         return values;
     }
-
-    /*
-        Определение параметра для фильтрации
-     */
-    private String getSqlQuery(String searchParameter) {
-        String condition;
-        if (searchParameter.equals("director")) {
-            condition = "WHERE d.name ILIKE '%'||?||'%' ";
-        } else if (searchParameter.equals("title")) {
-            condition = "WHERE f.name ILIKE '%'||?||'%' ";
-        } else {
-            condition = "WHERE d.name ILIKE '%'||?||'%' OR f.name ILIKE '%'||?||'%' ";
-        }
-        return "SELECT f.* " +
-                "FROM films AS f " +
-                "LEFT JOIN film_likes AS fl ON fl.film_id=f.id " +
-                "LEFT JOIN director_films AS df ON df.film_id=f.id " +
-                "LEFT JOIN directors AS d ON d.id=df.director_id " +
-                condition +
-                "GROUP BY f.id " +
-                "ORDER BY COUNT(fl.film_id) DESC";
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+    Фильмы, упорядоченные по количеству лайков (по убыванию, затем по id), в целом
+    и по разделам: жанр, год выпуска, жанр и год выпуска вместе. Первые limit фильмов
+    любого раздела читаются без обращения к базе
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingInt((Entry entry) -> -entry.likes)
+            .thenComparingInt(entry -> entry.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> all = new TreeSet<>(BY_POPULARITY);
+    private final Map<Integer, NavigableSet<Entry>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new HashMap<>();
+    private final Map<Long, NavigableSet<Entry>> byGenreAndYear = new HashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Entry> loaded = new HashMap<>();
+        jdbcTemplate.query("select f.id, extract(year from f.release_date) as release_year, " +
+                "(select count(*) from film_likes as l where l.film_id = f.id) as likes from films as f", rs -> {
+            int filmId = rs.getInt("id");
+            loaded.put(filmId, new Entry(filmId, rs.getInt("likes"), rs.getInt("release_year"), new int[0]));
+        });
+        Map<Integer, List<Integer>> genres = new HashMap<>();
+        jdbcTemplate.query("select distinct film_id, genre_id from film_genres order by film_id, genre_id", rs -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            all.clear();
+            byGenre.clear();
+            byYear.clear();
+            byGenreAndYear.clear();
+            loaded.values().forEach(entry -> index(entry.withGenres(genres.getOrDefault(entry.filmId, List.of()))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Построен индекс популярности фильмов: {} фильмов.", loaded.size());
+    }
+
+    /*
+        Добавление фильма или смена года выпуска, лайки и жанры сохраняются
+     */
+    public void putFilm(int filmId, int releaseYear) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = unindex(filmId);
+            index(entry == null
+                    ? new Entry(filmId, 0, releaseYear, new int[0])
+                    : new Entry(filmId, entry.likes, releaseYear, entry.genreIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setFilmGenres(int filmId, Collection<Integer> genreIds) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = unindex(filmId);
+            if (entry != null) {
+                index(entry.withGenres(genreIds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            unindex(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = unindex(filmId);
+            if (entry != null) {
+                index(new Entry(filmId, entry.likes + delta, entry.releaseYear, entry.genreIds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getLikes(int filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry == null ? 0 : entry.likes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+        id первых limit фильмов раздела; genreId и year равные -1 означают отсутствие фильтра
+     */
+    public List<Integer> getMostPopular(int limit, int genreId, int year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> partition;
+            if (genreId == -1 && year == -1) {
+                partition = all;
+            } else if (genreId == -1) {
+                partition = byYear.get(year);
+            } else if (year == -1) {
+                partition = byGenre.get(genreId);
+            } else {
+                partition = byGenreAndYear.get(genreAndYear(genreId, year));
+            }
+            List<Integer> filmIds = new ArrayList<>();
+            if (partition == null) {
+                return filmIds;
+            }
+            Iterator<Entry> iterator = partition.iterator();
+            while (filmIds.size() < limit && iterator.hasNext()) {
+                filmIds.add(iterator.next().filmId);
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Entry entry) {
+        entries.put(entry.filmId, entry);
+        all.add(entry);
+        partition(byYear, entry.releaseYear).add(entry);
+        for (int genreId : entry.genreIds) {
+            partition(byGenre, genreId).add(entry);
+            partition(byGenreAndYear, genreAndYear(genreId, entry.releaseYear)).add(entry);
+        }
+    }
+
+    private Entry unindex(int filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry == null) {
+            return null;
+        }
+        all.remove(entry);
+        removeFromPartition(byYear, entry.releaseYear, entry);
+        for (int genreId : entry.genreIds) {
+            removeFromPartition(byGenre, genreId, entry);
+            removeFromPartition(byGenreAndYear, genreAndYear(genreId, entry.releaseYear), entry);
+        }
+        return entry;
+    }
+
+    private static <K> NavigableSet<Entry> partition(Map<K, NavigableSet<Entry>> partitions, K key) {
+        return partitions.computeIfAbsent(key, k -> new TreeSet<>(BY_POPULARITY));
+    }
+
+    private static <K> void removeFromPartition(Map<K, NavigableSet<Entry>> partitions, K key, Entry entry) {
+        NavigableSet<Entry> partition = partitions.get(key);
+        if (partition != null) {
+            partition.remove(entry);
+            if (partition.isEmpty()) {
+                partitions.remove(key);
+            }
+        }
+    }
+
+    private static long genreAndYear(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final int filmId;
+        private final int likes;
+        private final int releaseYear;
+        private final int[] genreIds;
+
+        private Entry withGenres(Collection<Integer> genres) {
+            int[] ids = genres.stream().mapToInt(Integer::intValue).distinct().toArray();
+            return new Entry(filmId, likes, releaseYear, ids);
+        }
+    }
+}
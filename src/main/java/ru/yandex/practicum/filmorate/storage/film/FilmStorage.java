@@ -3,20 +3,31 @@ package ru.yandex.practicum.filmorate.storage.film;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getAll();
 
+    void streamAll(Consumer<Film> action);
+
     Film add(Film film);
 
     Film update(Film film);
 
     Film getFilmById(int id);
 
+    boolean exists(int id);
+
     List<Film> getMostPopular(int size);
 
     List<Film> search(String query, String by);
 
+    List<Film> fuzzySearch(String query, String by);
+
+    void streamSearch(String query, String by, boolean fuzzy, Consumer<Film> action);
+
+    List<String> getSearchSuggestions(String prefix, int count);
+
     void delete(int id);
 
     List<Film> getCommonFilms(int userId, int friendId);
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Справочник жанров держится в памяти в массиве, индексированном по id и загруженном при старте.
+    Жанры фильмов и жанр, которого нет в массиве, читаются через GenreDbStorage
+ */
+@Slf4j
+@Primary
+@Component
+@RequiredArgsConstructor
+public class GenreCachedStorage implements GenreStorage {
+    private final GenreDbStorage genreDbStorage;
+
+    private volatile Genre[] genresById = new Genre[0];
+    private volatile List<Genre> genres = List.of();
+
+    @PostConstruct
+    public synchronized void invalidate() {
+        List<Genre> loaded = List.copyOf(genreDbStorage.getAll());
+        int maxId = loaded.stream().mapToInt(Genre::getId).max().orElse(0);
+        Genre[] byId = new Genre[maxId + 1];
+        loaded.forEach(genre -> byId[genre.getId()] = genre);
+        genresById = byId;
+        genres = loaded;
+        log.info("Загружено жанров в кэш: {}.", loaded.size());
+    }
+
+    @Override
+    public List<Genre> getAll() {
+        return genres;
+    }
+
+    @Override
+    public Genre getGenreById(int id) {
+        Genre[] byId = genresById;
+        if (id > 0 && id < byId.length && byId[id] != null) {
+            return byId[id];
+        }
+        Genre genre = genreDbStorage.getGenreById(id);
+        remember(genre);
+        return genre;
+    }
+
+    /*
+        Жанр, добавленный в базу после загрузки, дописывается в массив. Если жанра нет и в базе,
+        GenreDbStorage бросает исключение и кэш не меняется
+     */
+    private synchronized void remember(Genre genre) {
+        Genre[] byId = genresById;
+        if (genre.getId() < byId.length && byId[genre.getId()] != null) {
+            return;
+        }
+        Genre[] extended = Arrays.copyOf(byId, Math.max(byId.length, genre.getId() + 1));
+        extended[genre.getId()] = genre;
+        List<Genre> extendedGenres = new ArrayList<>(genres);
+        extendedGenres.add(genre);
+        extendedGenres.sort(Comparator.comparingInt(Genre::getId));
+        genresById = extended;
+        genres = List.copyOf(extendedGenres);
+    }
+
+    @Override
+    public void addFilmGenres(Film film, int filmId) {
+        genreDbStorage.addFilmGenres(film, filmId);
+    }
+
+    @Override
+    public List<Genre> getFilmGenres(int filmId) {
+        return getFilmsGenres(List.of(filmId)).getOrDefault(filmId, new ArrayList<>());
+    }
+
+    @Override
+    public Map<Integer, List<Genre>> getFilmsGenres(Collection<Integer> filmIds) {
+        return genreDbStorage.getFilmsGenres(filmIds);
+    }
+
+    @Override
+    public void deleteFilmGenres(int filmId) {
+        genreDbStorage.deleteFilmGenres(filmId);
+    }
+}
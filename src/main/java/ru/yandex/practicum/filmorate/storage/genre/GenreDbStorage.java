@@ -7,15 +7,25 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.FilmRelations;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex filmPopularityIndex;
 
     @Override
     public List<Genre> getAll() {
@@ -48,21 +58,35 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     @Override
-    public void addFilmGenres(Film film, int filmId) {
-        if (!getFilmGenres(film.getId()).isEmpty()) {
-            String sqlQuery = "delete from film_genres where film_id = ?";
-            jdbcTemplate.update(sqlQuery, filmId);
-        }
-        if (film.getGenres() == null) {
-            return;
+    public Map<Integer, List<Genre>> getFilmsGenres(Collection<Integer> filmIds) {
+        Map<Integer, List<Genre>> filmsGenres = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return filmsGenres;
         }
-        String sqlQuery = "insert into film_genres(film_id, genre_id) values (?, ?)";
-        film.getGenres().forEach(genre -> jdbcTemplate.update(sqlQuery, filmId, genre.getId()));
+        String sqlQuery = "select distinct fg.film_id, g.* from film_genres as fg " +
+                "join genres as g on g.id = fg.genre_id " +
+                "where fg.film_id in (" + String.join(",", Collections.nCopies(filmIds.size(), "?")) + ") " +
+                "order by fg.film_id, g.id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            filmsGenres.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>())
+                    .add(genreFromRow(rs, rs.getRow()));
+        }, filmIds.toArray());
+        return filmsGenres;
+    }
+
+    @Override
+    public void addFilmGenres(Film film, int filmId) {
+        List<Integer> genreIds = film.getGenres() == null ? List.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toList());
+        List<Integer> savedIds = FilmRelations.replace(jdbcTemplate, "film_genres", "genre_id", filmId, genreIds);
+        AfterCommit.run(() -> filmPopularityIndex.setFilmGenres(filmId, savedIds));
     }
 
     @Override
     public void deleteFilmGenres(int filmId) {
         jdbcTemplate.update("delete from film_genres where film_id = ?", filmId);
+        AfterCommit.run(() -> filmPopularityIndex.setFilmGenres(filmId, List.of()));
     }
 
     private Genre genreFromRow(ResultSet resultSet, int rowNum) throws SQLException {
@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.storage.genre;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface GenreStorage {
     List<Genre> getAll();
@@ -14,5 +16,7 @@ public interface GenreStorage {
 
     List<Genre> getFilmGenres(int filmId);
 
+    Map<Integer, List<Genre>> getFilmsGenres(Collection<Integer> filmIds);
+
     void deleteFilmGenres(int filmId);
 }
@@ -2,8 +2,12 @@ package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
 
 import java.util.List;
 
@@ -12,17 +16,53 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LikeDbStorage implements LikeStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final LikesMatrix likesMatrix;
+    private final MinHashIndex minHashIndex;
+    private final LikedFilmsBitmaps likedFilmsBitmaps;
 
+    /*
+        Счетчик лайков фильма меняется только если лайк действительно добавлен или удален.
+        Проверка not exists не защищает от одновременной вставки того же лайка: вторая вставка
+        нарушает первичный ключ film_likes и считается, как и повторный лайк, не добавившей строк
+     */
     @Override
+    @Transactional
     public void addLike(int filmId, int userId) {
-        String sqlQuery = "merge into film_likes (film_id, user_id) key (film_id, user_id) values (?, ?)";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        String sqlQuery = "insert into film_likes (film_id, user_id) select ?, ? where not exists " +
+                "(select 1 from film_likes where film_id = ? and user_id = ?)";
+        int rowsInserted;
+        try {
+            rowsInserted = jdbcTemplate.update(sqlQuery, filmId, userId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            rowsInserted = 0;
+        }
+        if (rowsInserted > 0) {
+            jdbcTemplate.update("update films set likes_count = likes_count + 1 where id = ?", filmId);
+            AfterCommit.run(() -> {
+                filmPopularityIndex.changeLikes(filmId, 1);
+                likesMatrix.addLike(filmId, userId);
+                minHashIndex.addLike(userId, filmId);
+                likedFilmsBitmaps.addLike(filmId, userId);
+            });
+        }
         log.info("Фильм с id={} получил лайк от пользователя с id={}.", filmId, userId);
     }
 
     @Override
+    @Transactional
     public void deleteLike(int filmId, int userId) {
-        jdbcTemplate.update("delete from film_likes where film_id = ? and user_id = ?", filmId, userId);
+        int rowsDeleted = jdbcTemplate.update("delete from film_likes where film_id = ? and user_id = ?",
+                filmId, userId);
+        if (rowsDeleted > 0) {
+            jdbcTemplate.update("update films set likes_count = likes_count - ? where id = ?", rowsDeleted, filmId);
+            AfterCommit.run(() -> {
+                filmPopularityIndex.changeLikes(filmId, -rowsDeleted);
+                likesMatrix.deleteLike(filmId, userId);
+                minHashIndex.refresh(userId);
+                likedFilmsBitmaps.deleteLike(filmId, userId);
+            });
+        }
         log.info("Удален лайк фильма с id={} от пользователя с id={}.", filmId, userId);
     }
 
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+    Битовые карты лайкнутых фильмов по пользователям. Карта строится из матрицы лайков
+    при первом обращении и дальше заменяется копией при каждом лайке и его удалении,
+    поэтому опубликованные карты не изменяются. Хранится не больше maxSize карт, давно не читавшиеся
+    вытесняются, карты пользователей без лайков не хранятся
+ */
+@Component
+@RequiredArgsConstructor
+public class LikedFilmsBitmaps {
+    private final LikesMatrix likesMatrix;
+    private final FilmPopularityIndex filmPopularityIndex;
+
+    @Value("${filmorate.likes.bitmaps.cache-size:10000}")
+    private int maxSize;
+
+    private final Map<Integer, BitSet> bitmaps = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public synchronized void addLike(int filmId, int userId) {
+        bitmaps.computeIfPresent(userId, (id, bitmap) -> {
+            BitSet updated = (BitSet) bitmap.clone();
+            updated.set(filmId);
+            return updated;
+        });
+    }
+
+    public synchronized void deleteLike(int filmId, int userId) {
+        bitmaps.computeIfPresent(userId, (id, bitmap) -> {
+            BitSet updated = (BitSet) bitmap.clone();
+            updated.clear(filmId);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    public synchronized void removeUser(int userId) {
+        bitmaps.remove(userId);
+    }
+
+    /*
+        Общие фильмы двух пользователей по убыванию числа лайков, затем по id
+     */
+    public List<Integer> getCommonFilms(int userId, int friendId) {
+        BitSet common = (BitSet) getBitmap(userId).clone();
+        common.and(getBitmap(friendId));
+        return common.stream()
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer filmId) -> -filmPopularityIndex.getLikes(filmId))
+                        .thenComparingInt(filmId -> filmId))
+                .collect(Collectors.toList());
+    }
+
+    private synchronized BitSet getBitmap(int userId) {
+        BitSet bitmap = bitmaps.get(userId);
+        if (bitmap == null) {
+            bitmap = new BitSet();
+            for (int filmId : likesMatrix.getUserFilms(userId)) {
+                bitmap.set(filmId);
+            }
+            if (!bitmap.isEmpty()) {
+                bitmaps.put(userId, bitmap);
+            }
+        }
+        return bitmap;
+    }
+}
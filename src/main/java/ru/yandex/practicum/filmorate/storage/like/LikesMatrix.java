@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Разреженная матрица лайков: для каждого пользователя отсортированный массив id фильмов,
+    для каждого фильма отсортированный массив id пользователей. Массивы не изменяются,
+    при добавлении и удалении лайка строка заменяется новым массивом
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikesMatrix {
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> usersByFilm = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, IntList> films = new HashMap<>();
+        Map<Integer, IntList> users = new HashMap<>();
+        jdbcTemplate.query("select film_id, user_id from film_likes order by user_id, film_id", rs -> {
+            int filmId = rs.getInt("film_id");
+            int userId = rs.getInt("user_id");
+            films.computeIfAbsent(userId, id -> new IntList()).add(filmId);
+            users.computeIfAbsent(filmId, id -> new IntList()).add(userId);
+        });
+        filmsByUser.clear();
+        usersByFilm.clear();
+        films.forEach((userId, list) -> filmsByUser.put(userId, list.toSortedArray()));
+        users.forEach((filmId, list) -> usersByFilm.put(filmId, list.toSortedArray()));
+        log.info("Построена матрица лайков: {} пользователей, {} фильмов.", filmsByUser.size(), usersByFilm.size());
+    }
+
+    public void addLike(int filmId, int userId) {
+        filmsByUser.compute(userId, (id, films) -> SortedIntArrays.insert(films, filmId));
+        usersByFilm.compute(filmId, (id, users) -> SortedIntArrays.insert(users, userId));
+    }
+
+    public void deleteLike(int filmId, int userId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> SortedIntArrays.remove(films, filmId));
+        usersByFilm.computeIfPresent(filmId, (id, users) -> SortedIntArrays.remove(users, userId));
+    }
+
+    public void removeUser(int userId) {
+        int[] films = filmsByUser.remove(userId);
+        if (films != null) {
+            for (int filmId : films) {
+                usersByFilm.computeIfPresent(filmId, (id, users) -> SortedIntArrays.remove(users, userId));
+            }
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        int[] users = usersByFilm.remove(filmId);
+        if (users != null) {
+            for (int userId : users) {
+                filmsByUser.computeIfPresent(userId, (id, films) -> SortedIntArrays.remove(films, filmId));
+            }
+        }
+    }
+
+    public int[] getUserFilms(int userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public int[] getFilmUsers(int filmId) {
+        return usersByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    public Set<Integer> getUserIds() {
+        return Set.copyOf(filmsByUser.keySet());
+    }
+
+    public int getUserCount() {
+        return filmsByUser.size();
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toSortedArray() {
+            int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
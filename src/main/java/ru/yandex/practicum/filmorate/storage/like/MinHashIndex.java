@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    LSH-индекс по множествам лайков пользователей. Для каждого пользователя хранится
+    MinHash-сигнатура из bands * rows значений, каждая полоса из rows значений
+    кладет пользователя в корзину. Кандидаты в соседи - пользователи, совпавшие с данным
+    хотя бы в одной корзине. Больше полос - выше полнота, больше строк в полосе - меньше
+    кандидатов и быстрее поиск
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MinHashIndex {
+    private static final long PRIME = 2_147_483_647L;
+
+    private final LikesMatrix likesMatrix;
+
+    @Value("${filmorate.recommendations.lsh.bands:20}")
+    private int bands;
+    @Value("${filmorate.recommendations.lsh.rows:3}")
+    private int rows;
+
+    private long[] hashA;
+    private long[] hashB;
+    private final Map<Integer, int[]> signatures = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Integer>> buckets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        Random random = new Random(bands * 31L + rows);
+        hashA = new long[bands * rows];
+        hashB = new long[bands * rows];
+        for (int i = 0; i < hashA.length; i++) {
+            hashA[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+            hashB[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+        signatures.clear();
+        buckets.clear();
+        likesMatrix.getUserIds().forEach(this::refresh);
+        log.info("Построен LSH-индекс лайков: {} пользователей, {} корзин.", signatures.size(), buckets.size());
+    }
+
+    /*
+        Добавление лайка только уменьшает значения сигнатуры, поэтому она обновляется без пересчета
+     */
+    public synchronized void addLike(int userId, int filmId) {
+        int[] signature = signatures.get(userId);
+        if (signature == null) {
+            refresh(userId);
+            return;
+        }
+        int[] updated = signature.clone();
+        for (int i = 0; i < updated.length; i++) {
+            updated[i] = Math.min(updated[i], hash(i, filmId));
+        }
+        replace(userId, signature, updated);
+    }
+
+    /*
+        Пересчет сигнатуры по текущей строке матрицы лайков, нужен после удаления лайка
+     */
+    public synchronized void refresh(int userId) {
+        int[] films = likesMatrix.getUserFilms(userId);
+        int[] signature = signatures.get(userId);
+        if (films.length == 0) {
+            replace(userId, signature, null);
+            return;
+        }
+        int[] updated = new int[bands * rows];
+        Arrays.fill(updated, Integer.MAX_VALUE);
+        for (int filmId : films) {
+            for (int i = 0; i < updated.length; i++) {
+                updated[i] = Math.min(updated[i], hash(i, filmId));
+            }
+        }
+        replace(userId, signature, updated);
+    }
+
+    public Set<Integer> getCandidates(int userId) {
+        Set<Integer> candidates = new HashSet<>();
+        int[] signature = signatures.get(userId);
+        if (signature == null) {
+            return candidates;
+        }
+        for (int band = 0; band < bands; band++) {
+            Set<Integer> bucket = buckets.get(bucketKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        candidates.remove(userId);
+        return candidates;
+    }
+
+    private void replace(int userId, int[] oldSignature, int[] newSignature) {
+        Map<Integer, Long> oldKeys = new HashMap<>();
+        for (int band = 0; band < bands && oldSignature != null; band++) {
+            oldKeys.put(band, bucketKey(oldSignature, band));
+        }
+        for (int band = 0; band < bands; band++) {
+            Long oldKey = oldKeys.get(band);
+            Long newKey = newSignature == null ? null : bucketKey(newSignature, band);
+            if (oldKey != null && !oldKey.equals(newKey)) {
+                buckets.computeIfPresent(oldKey, (key, users) -> {
+                    users.remove(userId);
+                    return users.isEmpty() ? null : users;
+                });
+            }
+            if (newKey != null && !newKey.equals(oldKey)) {
+                buckets.computeIfAbsent(newKey, key -> ConcurrentHashMap.newKeySet()).add(userId);
+            }
+        }
+        if (newSignature == null) {
+            signatures.remove(userId);
+        } else {
+            signatures.put(userId, newSignature);
+        }
+    }
+
+    private int hash(int function, int filmId) {
+        return (int) ((hashA[function] * filmId + hashB[function]) % PRIME);
+    }
+
+    private long bucketKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            key = key * 1_000_003L + signature[row];
+        }
+        return key;
+    }
+}
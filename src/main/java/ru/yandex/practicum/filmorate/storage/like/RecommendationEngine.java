@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/*
+    Рекомендации фильмов по матрице лайков: находятся neighbours пользователей с наибольшим
+    коэффициентом Жаккара по множествам лайков, фильмы соседей, которые пользователь еще
+    не лайкнул, ранжируются по сумме сходства лайкнувших их соседей
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationEngine {
+    private final LikesMatrix likesMatrix;
+    private final MinHashIndex minHashIndex;
+
+    @Value("${filmorate.recommendations.neighbours:10}")
+    private int neighbours;
+    @Value("${filmorate.recommendations.lsh.min-users:10000}")
+    private int lshMinUsers;
+
+    public List<Integer> recommend(int userId) {
+        int[] ownFilms = likesMatrix.getUserFilms(userId);
+        if (ownFilms.length == 0) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Neighbour neighbour : findNeighbours(userId, ownFilms)) {
+            for (int filmId : likesMatrix.getUserFilms(neighbour.userId)) {
+                if (Arrays.binarySearch(ownFilms, filmId) < 0) {
+                    scores.merge(filmId, neighbour.similarity, Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private List<Neighbour> findNeighbours(int userId, int[] ownFilms) {
+        Map<Integer, Integer> intersections = likesMatrix.getUserCount() < lshMinUsers
+                ? intersectWithAll(userId, ownFilms)
+                : intersectWithCandidates(userId, ownFilms);
+        Comparator<Neighbour> bySimilarity = Comparator.comparingDouble((Neighbour neighbour) -> neighbour.similarity)
+                .thenComparingInt(neighbour -> -neighbour.userId);
+        PriorityQueue<Neighbour> nearest = new PriorityQueue<>(bySimilarity);
+        intersections.forEach((otherId, intersection) -> {
+            int union = ownFilms.length + likesMatrix.getUserFilms(otherId).length - intersection;
+            nearest.add(new Neighbour(otherId, (double) intersection / union));
+            if (nearest.size() > neighbours) {
+                nearest.poll();
+            }
+        });
+        return new ArrayList<>(nearest);
+    }
+
+    /*
+        Размер пересечения с каждым пользователем считается обходом пользователей,
+        лайкнувших те же фильмы, поэтому пользователи без общих лайков не рассматриваются
+     */
+    private Map<Integer, Integer> intersectWithAll(int userId, int[] ownFilms) {
+        Map<Integer, Integer> intersections = new HashMap<>();
+        for (int filmId : ownFilms) {
+            for (int otherId : likesMatrix.getFilmUsers(filmId)) {
+                if (otherId != userId) {
+                    intersections.merge(otherId, 1, Integer::sum);
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /*
+        При большом числе пользователей сравнение идет только с кандидатами из LSH-индекса
+     */
+    private Map<Integer, Integer> intersectWithCandidates(int userId, int[] ownFilms) {
+        Map<Integer, Integer> intersections = new HashMap<>();
+        for (int otherId : minHashIndex.getCandidates(userId)) {
+            int[] otherFilms = likesMatrix.getUserFilms(otherId);
+            int intersection = 0;
+            for (int i = 0, j = 0; i < ownFilms.length && j < otherFilms.length; ) {
+                if (ownFilms[i] == otherFilms[j]) {
+                    intersection++;
+                    i++;
+                    j++;
+                } else if (ownFilms[i] < otherFilms[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            if (intersection > 0) {
+                intersections.put(otherId, intersection);
+            }
+        }
+        return intersections;
+    }
+
+    @RequiredArgsConstructor
+    private static class Neighbour {
+        private final int userId;
+        private final double similarity;
+    }
+}
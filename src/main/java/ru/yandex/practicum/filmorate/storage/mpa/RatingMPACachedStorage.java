@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.mpa;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/*
+    Таблица mpa_rating заполняется из data.sql и практически не меняется, поэтому
+    рейтинги держатся в памяти в массиве, индексированном по id
+ */
+@Slf4j
+@Primary
+@Component
+@RequiredArgsConstructor
+public class RatingMPACachedStorage implements RatingMPAStorage {
+    private final RatingMPADbStorage ratingMPADbStorage;
+
+    private volatile RatingMPA[] ratingsById = new RatingMPA[0];
+    private volatile List<RatingMPA> ratings = List.of();
+
+    @PostConstruct
+    public void invalidate() {
+        List<RatingMPA> loaded = List.copyOf(ratingMPADbStorage.getAll());
+        int maxId = loaded.stream().mapToInt(RatingMPA::getId).max().orElse(0);
+        RatingMPA[] byId = new RatingMPA[maxId + 1];
+        loaded.forEach(rating -> byId[rating.getId()] = rating);
+        ratingsById = byId;
+        ratings = loaded;
+        log.info("Загружено рейтингов MPA в кэш: {}.", loaded.size());
+    }
+
+    @Override
+    public List<RatingMPA> getAll() {
+        return ratings;
+    }
+
+    @Override
+    public RatingMPA getRatingMPAById(int id) {
+        RatingMPA[] byId = ratingsById;
+        if (id > 0 && id < byId.length && byId[id] != null) {
+            return byId[id];
+        }
+        RatingMPA rating = ratingMPADbStorage.getRatingMPAById(id);
+        invalidate();
+        return rating;
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Кэш упорядоченных по полезности списков отзывов: по фильму и по всем фильмам (ключ ALL_FILMS).
+    Размер ограничен maxSize списками, давно не читавшиеся списки вытесняются. При изменении отзыва
+    списки обновляются на месте, если по ним можно определить новый порядок, иначе удаляются
+ */
+@Component
+public class ReviewCache {
+    public static final int ALL_FILMS = 0;
+
+    private static final Comparator<Review> BY_USEFUL = Comparator.comparingInt(Review::getUseful).reversed()
+            .thenComparingInt(Review::getReviewId);
+
+    @Value("${filmorate.reviews.cache.size:1000}")
+    private int maxSize;
+
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private long version;
+
+    /*
+        Первые count отзывов фильма или null, если в кэше их нет
+     */
+    public synchronized List<Review> get(int filmId, int count) {
+        Entry entry = entries.get(filmId);
+        if (entry == null || (!entry.complete && count > entry.reviews.size())) {
+            return null;
+        }
+        return List.copyOf(entry.reviews.subList(0, Math.min(count, entry.reviews.size())));
+    }
+
+    /*
+        Версия меняется при каждом изменении отзывов. Список, прочитанный из базы, сохраняется только
+        если версия не изменилась с начала чтения, иначе в кэш мог бы попасть устаревший порядок
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized void put(int filmId, int count, List<Review> reviews, long readVersion) {
+        if (readVersion == version) {
+            entries.put(filmId, new Entry(new ArrayList<>(reviews), reviews.size() < count));
+        }
+    }
+
+    public synchronized void update(Review review) {
+        version++;
+        update(review.getFilmId(), review);
+        update(ALL_FILMS, review);
+    }
+
+    public synchronized void remove(Review review) {
+        version++;
+        remove(review.getFilmId(), review.getReviewId());
+        remove(ALL_FILMS, review.getReviewId());
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        version++;
+        entries.remove(filmId);
+        entries.remove(ALL_FILMS);
+    }
+
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    /*
+        В полном списке отзыв просто переставляется. В усеченном списке отзыв, поднявшийся в него,
+        вытесняет последний, а отзыв, опустившийся к концу, мог уступить место отзыву вне списка,
+        поэтому такой список удаляется
+     */
+    private void update(int key, Review review) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        boolean contained = entry.reviews.removeIf(cached -> cached.getReviewId() == review.getReviewId());
+        int position = -Collections.binarySearch(entry.reviews, review, BY_USEFUL) - 1;
+        if (entry.complete) {
+            entry.reviews.add(position, review);
+        } else if (position < entry.reviews.size()) {
+            entry.reviews.add(position, review);
+            if (!contained) {
+                entry.reviews.remove(entry.reviews.size() - 1);
+            }
+        } else if (contained) {
+            entries.remove(key);
+        }
+    }
+
+    private void remove(int key, int reviewId) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.reviews.removeIf(cached -> cached.getReviewId() == reviewId) && !entry.complete) {
+            entries.remove(key);
+        }
+    }
+
+    private static class Entry {
+        private final List<Review> reviews;
+        private final boolean complete;
+
+        private Entry(List<Review> reviews, boolean complete) {
+            this.reviews = reviews;
+            this.complete = complete;
+        }
+    }
+}
@@ -4,10 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.ReviewNotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.storage.TableInserts;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -20,13 +20,12 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ReviewDbStorage implements ReviewStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final TableInserts tableInserts;
 
     @Override
     public Review add(Review review) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("reviews")
-                .usingGeneratedKeyColumns("id");
-        review.setReviewId(simpleJdbcInsert.executeAndReturnKey(this.reviewToRow(review)).intValue());
+        review.setReviewId(tableInserts.get("reviews").insert(reviewToRow(review)));
+        review.setUseful(0);
         log.info("Добавлен новый отзыв {}.", review);
         return review;
     }
@@ -58,23 +57,23 @@ public class ReviewDbStorage implements ReviewStorage {
     @Override
     public Review getReviewById(int id) {
         try {
-            String sqlQuery = "select r.*, " +
-                    "sum (case when rl.liked = true then 1 when rl.liked = false then -1 else 0 end) as useful from " +
-                    "reviews as r left join review_likes as rl on r.id = rl.review_id where r.id = ? group by r.id";
+            String sqlQuery = "select * from reviews where id = ?";
             return jdbcTemplate.queryForObject(sqlQuery, this::reviewFromRow, id);
         } catch (EmptyResultDataAccessException e) {
             throw new ReviewNotFoundException("Отзыв с id=" + id + " не найден.");
         }
     }
 
+    /*
+        Отзывы по убыванию полезности: чтение по индексу (film_id, useful) или (useful) без агрегации оценок
+     */
     @Override
     public List<Review> getSomeReviews(int filmId, int count) {
-        String where = "";
-        if (filmId != 0) where = "where r.film_id = " + filmId;
-        String sqlQuery = "select r.*, " +
-                "sum (case when rl.liked = true then 1 when rl.liked = false then -1 else 0 end) as useful " +
-                "from reviews as r left join review_likes as rl on r.id = rl.review_id "
-                + where + " group by r.id order by useful desc limit ?";
+        if (filmId != 0) {
+            String sqlQuery = "select * from reviews where film_id = ? order by useful desc, id limit ?";
+            return jdbcTemplate.query(sqlQuery, this::reviewFromRow, filmId, count);
+        }
+        String sqlQuery = "select * from reviews order by useful desc, id limit ?";
         return jdbcTemplate.query(sqlQuery, this::reviewFromRow, count);
     }
 
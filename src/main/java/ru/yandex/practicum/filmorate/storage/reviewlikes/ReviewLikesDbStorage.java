@@ -4,33 +4,63 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.ReviewNotFoundException;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ReviewLikesDbStorage implements ReviewLikesStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    /*
+        Полезность отзыва хранится в reviews.useful и меняется на разницу между новой
+        и прежней оценкой пользователя в той же транзакции. Строка отзыва блокируется до чтения
+        прежней оценки, поэтому одновременные оценки одного отзыва применяются по очереди
+        и каждая учитывается в useful один раз
+     */
     @Override
+    @Transactional
     public void addLike(int reviewId, int userId, boolean hasLiked) {
+        if (!lockReview(reviewId)) {
+            throw new ReviewNotFoundException("Отзыв с id=" + reviewId + " не найден.");
+        }
+        List<Boolean> previous = jdbcTemplate.queryForList(
+                "select liked from review_likes where review_id = ? and user_id = ?", Boolean.class, reviewId, userId);
         String sqlQuery = "merge into review_likes (review_id, user_id, liked) key (review_id, user_id) values (?, ?, ?)";
-        int rowsUpdated = jdbcTemplate.update(sqlQuery,
+        jdbcTemplate.update(sqlQuery,
                 reviewId,
                 userId,
                 hasLiked
         );
-        if (rowsUpdated == 1) {
-            log.info("Пользователь с id={} оценил отзыв с id={}.", userId, reviewId);
-        } else {
-            throw new ReviewNotFoundException("Отзыв с id=" + reviewId + " не найден.");
+        int delta = score(hasLiked) - (previous.isEmpty() ? 0 : score(previous.get(0)));
+        if (delta != 0) {
+            jdbcTemplate.update("update reviews set useful = useful + ? where id = ?", delta, reviewId);
         }
+        log.info("Пользователь с id={} оценил отзыв с id={}.", userId, reviewId);
     }
 
     @Override
+    @Transactional
     public void deleteLike(int reviewId, int userId, boolean liked) {
+        lockReview(reviewId);
         String sqlQuery = "delete from review_likes where review_id = ? and user_id = ? and liked = ?";
-        jdbcTemplate.update(sqlQuery, reviewId, userId, liked);
+        int deleted = jdbcTemplate.update(sqlQuery, reviewId, userId, liked);
+        if (deleted > 0) {
+            jdbcTemplate.update("update reviews set useful = useful - ? where id = ?",
+                    deleted * score(liked), reviewId);
+        }
         log.info("Удалена оценка пользователя с id={} отзыву с id={}.", userId, reviewId);
     }
+
+    private boolean lockReview(int reviewId) {
+        return !jdbcTemplate.queryForList("select id from reviews where id = ? for update", Integer.class, reviewId)
+                .isEmpty();
+    }
+
+    private static int score(boolean liked) {
+        return liked ? 1 : -1;
+    }
 }
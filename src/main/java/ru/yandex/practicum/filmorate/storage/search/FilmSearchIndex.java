@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/*
+    Индекс для поиска фильмов по подстроке в названии фильма или в имени режиссера.
+    Обновляется при изменении фильмов, режиссеров и связей между ними,
+    результаты упорядочиваются по количеству лайков
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex filmPopularityIndex;
+
+    @Value("${filmorate.search.fuzzy.threshold:0.4}")
+    private double fuzzyThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex films = new TrigramIndex();
+    private final TrigramIndex directors = new TrigramIndex();
+    private final PrefixIndex filmPrefixes = new PrefixIndex();
+    private final PrefixIndex directorPrefixes = new PrefixIndex();
+    private final Map<Integer, Set<Integer>> directorFilms = new HashMap<>();
+    private final Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            directors.clear();
+            filmPrefixes.clear();
+            directorPrefixes.clear();
+            directorFilms.clear();
+            filmDirectors.clear();
+            jdbcTemplate.query("select id, name from films",
+                    rs -> {
+                        films.put(rs.getInt("id"), rs.getString("name"));
+                        filmPrefixes.put(rs.getInt("id"), rs.getString("name"));
+                    });
+            jdbcTemplate.query("select id, name from directors",
+                    rs -> {
+                        directors.put(rs.getInt("id"), rs.getString("name"));
+                        directorPrefixes.put(rs.getInt("id"), rs.getString("name"));
+                    });
+            jdbcTemplate.query("select film_id, director_id from director_films",
+                    rs -> {
+                        link(rs.getInt("film_id"), rs.getInt("director_id"));
+                    });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Построен поисковый индекс фильмов.");
+    }
+
+    public void putFilm(int filmId, String name) {
+        lock.writeLock().lock();
+        try {
+            films.put(filmId, name);
+            filmPrefixes.put(filmId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            films.remove(filmId);
+            filmPrefixes.remove(filmId);
+            unlinkFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(int directorId, String name) {
+        lock.writeLock().lock();
+        try {
+            directors.put(directorId, name);
+            directorPrefixes.put(directorId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            directors.remove(directorId);
+            directorPrefixes.remove(directorId);
+            Set<Integer> filmIds = directorFilms.remove(directorId);
+            if (filmIds != null) {
+                filmIds.forEach(filmId -> filmDirectors.computeIfPresent(filmId, (id, ids) -> {
+                    ids.remove(directorId);
+                    return ids.isEmpty() ? null : ids;
+                }));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setFilmDirectors(int filmId, Collection<Integer> directorIds) {
+        lock.writeLock().lock();
+        try {
+            unlinkFilm(filmId);
+            directorIds.forEach(directorId -> link(filmId, directorId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+        id фильмов, у которых query входит в название (byTitle) или в имя одного из режиссеров (byDirector)
+     */
+    public List<Integer> search(String query, boolean byTitle, boolean byDirector) {
+        Set<Integer> found = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            if (byTitle) {
+                found.addAll(films.findContaining(query));
+            }
+            if (byDirector) {
+                directors.findContaining(query)
+                        .forEach(directorId -> found.addAll(directorFilms.getOrDefault(directorId, Set.of())));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found.stream()
+                .sorted(Comparator.comparingInt((Integer filmId) -> -filmPopularityIndex.getLikes(filmId))
+                        .thenComparingInt(filmId -> filmId))
+                .collect(Collectors.toList());
+    }
+
+    /*
+        Нечеткий поиск: оценка фильма - наибольшее сходство запроса с названием или с именем
+        одного из режиссеров, фильмы упорядочиваются по оценке, затем по количеству лайков
+     */
+    public List<Integer> fuzzySearch(String query, boolean byTitle, boolean byDirector) {
+        Map<Integer, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (byTitle) {
+                films.findSimilar(query, fuzzyThreshold)
+                        .forEach((filmId, score) -> scores.merge(filmId, score, Math::max));
+            }
+            if (byDirector) {
+                directors.findSimilar(query, fuzzyThreshold).forEach((directorId, score) ->
+                        directorFilms.getOrDefault(directorId, Set.of())
+                                .forEach(filmId -> scores.merge(filmId, score, Math::max)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.keySet().stream()
+                .sorted(Comparator.comparingDouble((Integer filmId) -> -scores.get(filmId))
+                        .thenComparingInt(filmId -> -filmPopularityIndex.getLikes(filmId))
+                        .thenComparingInt(filmId -> filmId))
+                .collect(Collectors.toList());
+    }
+
+    /*
+        Автодополнение: названия фильмов и имена режиссеров, одно из слов которых начинается с prefix.
+        Вес названия - количество лайков фильма, вес режиссера - сумма лайков его фильмов
+     */
+    public List<String> suggest(String prefix, int count) {
+        Map<String, Integer> weights = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            filmPrefixes.findByPrefix(prefix).forEach(filmId ->
+                    weights.merge(filmPrefixes.getText(filmId), filmPopularityIndex.getLikes(filmId), Math::max));
+            directorPrefixes.findByPrefix(prefix).forEach(directorId -> {
+                int likes = directorFilms.getOrDefault(directorId, Set.of()).stream()
+                        .mapToInt(filmPopularityIndex::getLikes)
+                        .sum();
+                weights.merge(directorPrefixes.getText(directorId), likes, Math::max);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return weights.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void link(int filmId, int directorId) {
+        directorFilms.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId);
+        filmDirectors.computeIfAbsent(filmId, id -> new HashSet<>()).add(directorId);
+    }
+
+    private void unlinkFilm(int filmId) {
+        Set<Integer> directorIds = filmDirectors.remove(filmId);
+        if (directorIds != null) {
+            directorIds.forEach(directorId -> directorFilms.computeIfPresent(directorId, (id, ids) -> {
+                ids.remove(filmId);
+                return ids.isEmpty() ? null : ids;
+            }));
+        }
+    }
+}
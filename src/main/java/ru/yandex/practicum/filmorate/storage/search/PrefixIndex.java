@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+    Отсортированный индекс для автодополнения. Каждая строка попадает в индекс под ключами,
+    начинающимися с каждого ее слова, поэтому "fic" находит "Pulp Fiction". Поиск по префиксу -
+    выборка диапазона ключей. Класс не потокобезопасен, синхронизация на вызывающей стороне
+ */
+class PrefixIndex {
+    private final Map<Integer, String> texts = new HashMap<>();
+    private final NavigableMap<String, Set<Integer>> keys = new TreeMap<>();
+
+    void put(int id, String text) {
+        remove(id);
+        texts.put(id, text);
+        for (String key : keys(text)) {
+            keys.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    void remove(int id) {
+        String text = texts.remove(id);
+        if (text == null) {
+            return;
+        }
+        for (String key : keys(text)) {
+            Set<Integer> ids = keys.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    keys.remove(key);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        texts.clear();
+        keys.clear();
+    }
+
+    String getText(int id) {
+        return texts.get(id);
+    }
+
+    /*
+        id строк, одно из слов которых начинается с prefix без учета регистра
+     */
+    Set<Integer> findByPrefix(String prefix) {
+        String normalized = TrigramIndex.normalize(prefix).strip();
+        Set<Integer> result = new HashSet<>();
+        if (normalized.isEmpty()) {
+            return result;
+        }
+        keys.subMap(normalized, true, normalized + Character.MAX_VALUE, false)
+                .values()
+                .forEach(result::addAll);
+        return result;
+    }
+
+    private static Set<String> keys(String text) {
+        String normalized = TrigramIndex.normalize(text);
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (!Character.isWhitespace(normalized.charAt(i))
+                    && (i == 0 || Character.isWhitespace(normalized.charAt(i - 1)))) {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Инвертированный индекс строк по триграммам. Строки приводятся к нижнему регистру и дополняются
+    пробелами по краям, чтобы начало и конец строки давали свои триграммы. Поиск подстроки сводится
+    к пересечению списков документов по триграммам запроса с последующей проверкой вхождения,
+    нечеткий поиск - к подсчету общих с запросом триграмм. Класс не потокобезопасен,
+    синхронизация на вызывающей стороне
+ */
+class TrigramIndex {
+    private final Map<Integer, String> texts = new HashMap<>();
+    private final Map<Long, Set<Integer>> postings = new HashMap<>();
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    void put(int id, String text) {
+        remove(id);
+        String normalized = normalize(text);
+        texts.put(id, normalized);
+        for (long trigram : trigrams(pad(normalized))) {
+            postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    void remove(int id) {
+        String text = texts.remove(id);
+        if (text == null) {
+            return;
+        }
+        for (long trigram : trigrams(pad(text))) {
+            Set<Integer> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        texts.clear();
+        postings.clear();
+    }
+
+    /*
+        id строк, содержащих query как подстроку без учета регистра
+     */
+    Set<Integer> findContaining(String query) {
+        String normalized = normalize(query);
+        Set<Integer> result = new HashSet<>();
+        if (normalized.length() < 3) {
+            texts.forEach((id, text) -> {
+                if (text.contains(normalized)) {
+                    result.add(id);
+                }
+            });
+            return result;
+        }
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (long trigram : trigrams(normalized)) {
+            Set<Integer> ids = postings.get(trigram);
+            if (ids == null) {
+                return result;
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        for (int id : lists.get(0)) {
+            if (lists.stream().allMatch(ids -> ids.contains(id)) && texts.get(id).contains(normalized)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /*
+        Сходство строк с запросом - доля триграмм запроса, встречающихся в строке. Опечатка портит
+        не больше трех триграмм, поэтому строки с опечатками сохраняют высокую оценку, а длинные
+        названия не штрафуются за слова, которых нет в запросе. Возвращаются строки с оценкой
+        не ниже threshold
+     */
+    Map<Integer, Double> findSimilar(String query, double threshold) {
+        Set<Long> queryTrigrams = trigrams(pad(normalize(query)));
+        Map<Integer, Integer> matches = new HashMap<>();
+        for (long trigram : queryTrigrams) {
+            Set<Integer> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.forEach(id -> matches.merge(id, 1, Integer::sum));
+            }
+        }
+        Map<Integer, Double> result = new HashMap<>();
+        matches.forEach((id, count) -> {
+            double similarity = (double) count / queryTrigrams.size();
+            if (similarity >= threshold) {
+                result.put(id, similarity);
+            }
+        });
+        return result;
+    }
+
+    private static String pad(String text) {
+        return "  " + text + " ";
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
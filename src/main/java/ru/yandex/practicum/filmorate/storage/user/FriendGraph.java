@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/*
+    Граф дружбы в памяти: для каждого пользователя отсортированный массив id его друзей
+    и отсортированный массив id пользователей, добавивших его в друзья. Массивы не изменяются,
+    при добавлении и удалении друга заменяются новыми
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraph {
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${filmorate.friends.suggestions.max-friends:500}")
+    private int maxFriends;
+    @Value("${filmorate.friends.suggestions.max-friends-of-friend:1000}")
+    private int maxFriendsOfFriend;
+
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> followers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, List<Integer>> loadedFriends = new HashMap<>();
+        Map<Integer, List<Integer>> loadedFollowers = new HashMap<>();
+        jdbcTemplate.query("select user_id, friend_id from friends", rs -> {
+            int userId = rs.getInt("user_id");
+            int friendId = rs.getInt("friend_id");
+            loadedFriends.computeIfAbsent(userId, id -> new ArrayList<>()).add(friendId);
+            loadedFollowers.computeIfAbsent(friendId, id -> new ArrayList<>()).add(userId);
+        });
+        friends.clear();
+        followers.clear();
+        loadedFriends.forEach((userId, ids) -> friends.put(userId, sorted(ids)));
+        loadedFollowers.forEach((userId, ids) -> followers.put(userId, sorted(ids)));
+        log.info("Построен граф дружбы: {} пользователей с друзьями.", friends.size());
+    }
+
+    public void addFriend(int userId, int friendId) {
+        friends.compute(userId, (id, ids) -> SortedIntArrays.insert(ids, friendId));
+        followers.compute(friendId, (id, ids) -> SortedIntArrays.insert(ids, userId));
+    }
+
+    public void deleteFriend(int userId, int friendId) {
+        friends.computeIfPresent(userId, (id, ids) -> SortedIntArrays.remove(ids, friendId));
+        followers.computeIfPresent(friendId, (id, ids) -> SortedIntArrays.remove(ids, userId));
+    }
+
+    public void removeUser(int userId) {
+        for (int friendId : friends.getOrDefault(userId, EMPTY)) {
+            followers.computeIfPresent(friendId, (id, ids) -> SortedIntArrays.remove(ids, userId));
+        }
+        for (int followerId : followers.getOrDefault(userId, EMPTY)) {
+            friends.computeIfPresent(followerId, (id, ids) -> SortedIntArrays.remove(ids, userId));
+        }
+        friends.remove(userId);
+        followers.remove(userId);
+    }
+
+    public int[] getFriends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    public int[] getFollowers(int userId) {
+        return followers.getOrDefault(userId, EMPTY);
+    }
+
+    public int[] getCommonFriends(int userId, int otherId) {
+        return SortedIntArrays.intersect(getFriends(userId), getFriends(otherId));
+    }
+
+    /*
+        Возможные друзья - друзья друзей, упорядоченные по числу общих друзей, затем по id.
+        Обход ограничен: берутся не больше maxFriends друзей пользователя и не больше
+        maxFriendsOfFriend друзей каждого из них, поэтому пользователи с огромным числом
+        друзей не замедляют подсчет
+     */
+    public List<Integer> suggestFriends(int userId, int limit) {
+        int[] own = getFriends(userId);
+        Map<Integer, Integer> mutual = new HashMap<>();
+        for (int i = 0; i < own.length && i < maxFriends; i++) {
+            int[] friendsOfFriend = getFriends(own[i]);
+            for (int j = 0; j < friendsOfFriend.length && j < maxFriendsOfFriend; j++) {
+                int candidateId = friendsOfFriend[j];
+                if (candidateId != userId && Arrays.binarySearch(own, candidateId) < 0) {
+                    mutual.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        return mutual.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static int[] sorted(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+}
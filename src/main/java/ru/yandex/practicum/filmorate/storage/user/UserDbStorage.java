@@ -4,44 +4,90 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.IdSet;
+import ru.yandex.practicum.filmorate.storage.TableInserts;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikedFilmsBitmaps;
+import ru.yandex.practicum.filmorate.storage.like.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.like.MinHashIndex;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCache;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final TableInserts tableInserts;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final LikesMatrix likesMatrix;
+    private final MinHashIndex minHashIndex;
+    private final LikedFilmsBitmaps likedFilmsBitmaps;
+    private final FriendGraph friendGraph;
+    private final ReviewCache reviewCache;
+
+    private static final int USERS_BATCH_SIZE = 1000;
+
+    private final IdSet userIds = new IdSet();
+
+    @PostConstruct
+    public void loadIds() {
+        userIds.load(jdbcTemplate.queryForList("select id from users", Integer.class));
+        log.info("Загружены id пользователей: {}.", userIds.size());
+    }
 
     @Override
     public List<User> getAll() {
         return jdbcTemplate.query("select * from users", this::userFromRow);
     }
 
+    /*
+        Пользователи читаются страницами по USERS_BATCH_SIZE после последнего прочитанного id,
+        соединение с базой не занято, пока страница передается в action
+     */
+    @Override
+    public void streamAll(Consumer<User> action) {
+        String sqlQuery = "select * from users where id > ? order by id limit ?";
+        List<User> page;
+        int lastId = 0;
+        do {
+            page = jdbcTemplate.query(sqlQuery, this::userFromRow, lastId, USERS_BATCH_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == USERS_BATCH_SIZE);
+    }
+
     @Override
     public User add(User user) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("id");
-        int id = simpleJdbcInsert.executeAndReturnKey(userToRow(user)).intValue();
+        int id = tableInserts.get("users").insert(userToRow(user));
+        userIds.add(id);
+        user.setId(id);
         log.info("Добавлен новый пользователь {}.", user);
-        return getUserById(id);
+        return user;
     }
 
     @Override
     public User update(User user) {
         String sqlQuery = "update users set email = ?, login = ?, name = ?, birthday = ? where id = ?";
-        try {
-            getUserById(user.getId());
-        } catch (UserNotFoundException e) {
+        if (!exists(user.getId())) {
             log.debug("Обновление пользователя c неверным id: {}", user.getId());
             throw new UserNotFoundException("Пользователь с id " + user.getId() + " не существует");
         }
@@ -52,7 +98,7 @@ public class UserDbStorage implements UserStorage {
                 user.getBirthday(),
                 user.getId());
         log.info("Обновлен пользователь {}.", user);
-        return getUserById(user.getId());
+        return user;
     }
 
     @Override
@@ -67,8 +113,32 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    public boolean exists(int id) {
+        return userIds.contains(id, userId -> Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists(select 1 from users where id = ?)", Boolean.class, userId)));
+    }
+
+    @Override
+    @Transactional
     public void delete(int id) {
+        List<Integer> likedFilms = jdbcTemplate.queryForList(
+                "select film_id from film_likes where user_id = ?", Integer.class, id);
+        jdbcTemplate.update("update films set likes_count = likes_count - 1 " +
+                "where id in (select film_id from film_likes where user_id = ?)", id);
+        jdbcTemplate.update("update reviews as r set useful = useful - " +
+                "(select sum(case when rl.liked then 1 else -1 end) " +
+                "from review_likes as rl where rl.review_id = r.id and rl.user_id = ?) " +
+                "where id in (select review_id from review_likes where user_id = ?)", id, id);
         jdbcTemplate.update("delete from users where id = ?", id);
+        AfterCommit.run(() -> {
+            userIds.remove(id);
+            likedFilms.forEach(filmId -> filmPopularityIndex.changeLikes(filmId, -1));
+            likesMatrix.removeUser(id);
+            minHashIndex.refresh(id);
+            likedFilmsBitmaps.removeUser(id);
+            friendGraph.removeUser(id);
+            reviewCache.clear();
+        });
         log.info("Удален пользователь с id={}.", id);
     }
 
@@ -76,6 +146,7 @@ public class UserDbStorage implements UserStorage {
     public void addFriend(int userId, int friendId) {
         String sqlQuery = "merge into friends (user_id, friend_id) key (user_id, friend_id) values (?, ?)";
         jdbcTemplate.update(sqlQuery, userId, friendId);
+        friendGraph.addFriend(userId, friendId);
         log.info("Пользователь с id={} добавил в друзья пользователя с id={}.", userId, friendId);
     }
 
@@ -83,21 +154,57 @@ public class UserDbStorage implements UserStorage {
     public void deleteFriend(int userId, int friendId) {
         String sqlQuery = "delete from friends where user_id = ? and friend_id = ?";
         jdbcTemplate.update(sqlQuery, userId, friendId);
+        friendGraph.deleteFriend(userId, friendId);
         log.info("Пользователь с id={} удалил из друзей пользователя с id={}.", userId, friendId);
     }
 
     @Override
     public List<User> getFriends(int id) {
-        String sqlQuery = "select * from users where id in (select friend_id from friends where user_id = ?)";
-        return jdbcTemplate.query(sqlQuery, this::userFromRow, id);
+        return getUsersByIds(toList(friendGraph.getFriends(id)));
     }
 
+    /*
+        id пользователей, добавивших пользователя id в друзья
+     */
+    @Override
+    public List<Integer> getFollowerIds(int id) {
+        return toList(friendGraph.getFollowers(id));
+    }
+
+    /*
+        Общие друзья - пересечение отсортированных списков друзей из графа дружбы
+     */
     @Override
     public List<User> getCommonFriends(int id, int otherId) {
-        String sqlQuery = "select * from users where id in " +
-                "(select f.friend_id from friends f where f.user_id = ? AND f.friend_id in " +
-                "(select f.friend_id from friends f where f.user_id = ?))";
-        return jdbcTemplate.query(sqlQuery, this::userFromRow, id, otherId);
+        return getUsersByIds(toList(friendGraph.getCommonFriends(id, otherId)));
+    }
+
+    @Override
+    public List<Integer> getFriendSuggestionIds(int id, int limit) {
+        return friendGraph.suggestFriends(id, limit);
+    }
+
+    /*
+        Загрузка пользователей в порядке ids, по одному запросу на каждые USERS_BATCH_SIZE id
+     */
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += USERS_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + USERS_BATCH_SIZE, ids.size()));
+            String sqlQuery = "select * from users where id in (" +
+                    String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, this::userFromRow, batch.toArray())
+                    .forEach(user -> users.put(user.getId(), user));
+        }
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
     }
 
     private User userFromRow(ResultSet rs, int rowNum) throws SQLException {
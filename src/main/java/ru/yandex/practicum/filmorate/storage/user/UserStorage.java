@@ -3,16 +3,21 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     List<User> getAll();
 
+    void streamAll(Consumer<User> action);
+
     User add(User user);
 
     User update(User user);
 
     User getUserById(int id);
 
+    boolean exists(int id);
+
     void delete(int id);
 
     void addFriend(int userId, int friendId);
@@ -21,5 +26,11 @@ public interface UserStorage {
 
     List<User> getFriends(int id);
 
+    List<Integer> getFollowerIds(int id);
+
     List<User> getCommonFriends(int id, int otherId);
+
+    List<Integer> getFriendSuggestionIds(int id, int limit);
+
+    List<User> getUsersByIds(List<Integer> ids);
 }
\ No newline at end of file
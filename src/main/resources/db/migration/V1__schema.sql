@@ -1,15 +1,3 @@
-DROP TABLE IF EXISTS film_likes CASCADE;
-DROP TABLE IF EXISTS friends CASCADE;
-DROP TABLE IF EXISTS film_genres CASCADE;
-DROP TABLE IF EXISTS events CASCADE;
-DROP TABLE IF EXISTS director_films CASCADE;
-DROP TABLE IF EXISTS directors CASCADE;
-DROP TABLE IF EXISTS review_likes CASCADE;
-DROP TABLE IF EXISTS reviews CASCADE;
-DROP TABLE IF EXISTS genres CASCADE;
-DROP TABLE IF EXISTS users CASCADE;
-DROP TABLE IF EXISTS films CASCADE;
-
 CREATE TABLE IF NOT EXISTS mpa_rating (
   id int GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   name varchar(255)
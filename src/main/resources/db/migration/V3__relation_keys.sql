@@ -0,0 +1,47 @@
+DELETE FROM film_likes WHERE film_id IS NULL OR user_id IS NULL;
+DELETE FROM film_likes AS l WHERE EXISTS (
+  SELECT 1 FROM film_likes AS d WHERE d.film_id = l.film_id AND d.user_id = l.user_id AND d._ROWID_ < l._ROWID_
+);
+ALTER TABLE film_likes ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE film_likes ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE film_likes ADD PRIMARY KEY (film_id, user_id);
+CREATE INDEX IF NOT EXISTS film_likes_user_id_idx ON film_likes (user_id, film_id);
+
+DELETE FROM friends WHERE user_id IS NULL OR friend_id IS NULL;
+DELETE FROM friends AS f WHERE EXISTS (
+  SELECT 1 FROM friends AS d WHERE d.user_id = f.user_id AND d.friend_id = f.friend_id AND d._ROWID_ < f._ROWID_
+);
+ALTER TABLE friends ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE friends ALTER COLUMN friend_id SET NOT NULL;
+ALTER TABLE friends ADD PRIMARY KEY (user_id, friend_id);
+CREATE INDEX IF NOT EXISTS friends_friend_id_idx ON friends (friend_id, user_id);
+
+DELETE FROM film_genres WHERE film_id IS NULL OR genre_id IS NULL;
+DELETE FROM film_genres AS g WHERE EXISTS (
+  SELECT 1 FROM film_genres AS d WHERE d.film_id = g.film_id AND d.genre_id = g.genre_id AND d._ROWID_ < g._ROWID_
+);
+ALTER TABLE film_genres ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE film_genres ALTER COLUMN genre_id SET NOT NULL;
+ALTER TABLE film_genres ADD PRIMARY KEY (film_id, genre_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_id_idx ON film_genres (genre_id, film_id);
+
+DELETE FROM director_films WHERE film_id IS NULL OR director_id IS NULL;
+DELETE FROM director_films AS f WHERE EXISTS (
+  SELECT 1 FROM director_films AS d
+  WHERE d.film_id = f.film_id AND d.director_id = f.director_id AND d._ROWID_ < f._ROWID_
+);
+ALTER TABLE director_films ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE director_films ALTER COLUMN director_id SET NOT NULL;
+ALTER TABLE director_films ADD PRIMARY KEY (film_id, director_id);
+CREATE INDEX IF NOT EXISTS director_films_director_id_idx ON director_films (director_id, film_id);
+
+DELETE FROM review_likes WHERE review_id IS NULL OR user_id IS NULL;
+DELETE FROM review_likes AS l WHERE EXISTS (
+  SELECT 1 FROM review_likes AS d WHERE d.review_id = l.review_id AND d.user_id = l.user_id AND d._ROWID_ > l._ROWID_
+);
+ALTER TABLE review_likes ALTER COLUMN review_id SET NOT NULL;
+ALTER TABLE review_likes ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE review_likes ADD PRIMARY KEY (review_id, user_id);
+CREATE INDEX IF NOT EXISTS review_likes_user_id_idx ON review_likes (user_id, review_id);
+
+CREATE INDEX IF NOT EXISTS events_user_id_idx ON events (user_id, id);
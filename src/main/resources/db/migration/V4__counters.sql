@@ -0,0 +1,9 @@
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count int NOT NULL DEFAULT 0;
+UPDATE films AS f SET likes_count = (SELECT count(*) FROM film_likes AS l WHERE l.film_id = f.id);
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
+
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS useful int NOT NULL DEFAULT 0;
+UPDATE reviews AS r SET useful = COALESCE(
+  (SELECT sum(CASE WHEN l.liked THEN 1 ELSE -1 END) FROM review_likes AS l WHERE l.review_id = r.id), 0);
+CREATE INDEX IF NOT EXISTS reviews_film_id_useful_idx ON reviews (film_id, useful DESC, id);
+CREATE INDEX IF NOT EXISTS reviews_useful_idx ON reviews (useful DESC, id);
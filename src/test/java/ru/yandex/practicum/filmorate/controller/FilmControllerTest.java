@@ -9,15 +9,19 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.RatingMPA;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -440,4 +444,111 @@ public class FilmControllerTest {
         assertEquals(film1, popular[0]);
         assertEquals(film2, popular[1]);
     }
+
+    @Test
+    void shouldSuggestTitlesAndDirectorsByPrefix() {
+        Director director = restTemplate.postForEntity("/directors", new Director(1, "Peter Jackson"), Director.class)
+                .getBody();
+
+        assertNotNull(director);
+
+        Film film1 = Film.builder()
+                .name("Pulp Fiction")
+                .description("Film 1 is a test entity")
+                .releaseDate(LocalDate.parse("1994-05-21"))
+                .duration(154)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build();
+        Film film2 = Film.builder()
+                .name("Fight Club")
+                .description("Film 2 is a test entity")
+                .releaseDate(LocalDate.parse("1999-10-15"))
+                .duration(139)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build();
+        Film film3 = Film.builder()
+                .name("Fellowship of the Ring")
+                .description("Film 3 is a test entity")
+                .releaseDate(LocalDate.parse("2001-12-19"))
+                .duration(178)
+                .mpa(new RatingMPA(3, "PG-13"))
+                .genres(Collections.emptyList())
+                .directors(List.of(director))
+                .build();
+        restTemplate.postForEntity(resource, film1, Film.class);
+        film2 = restTemplate.postForEntity(resource, film2, Film.class).getBody();
+        restTemplate.postForEntity(resource, film3, Film.class);
+
+        assertNotNull(film2);
+
+        User user = restTemplate.postForEntity("/users", User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testUsername")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build(), User.class).getBody();
+
+        assertNotNull(user);
+
+        restTemplate.exchange(
+                resource + "/" + film2.getId() + "/like/" + user.getId(),
+                HttpMethod.PUT,
+                HttpEntity.EMPTY,
+                Void.class
+        );
+
+        ResponseEntity<String[]> response = restTemplate.getForEntity(
+                resource + "/search/suggest?prefix=F", String[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(new String[]{"Fight Club", "Fellowship of the Ring", "Pulp Fiction"}, response.getBody());
+
+        response = restTemplate.getForEntity(resource + "/search/suggest?prefix=jack&count=1", String[].class);
+
+        assertArrayEquals(new String[]{"Peter Jackson"}, response.getBody());
+
+        ResponseEntity<String> invalidResponse = restTemplate.getForEntity(
+                resource + "/search/suggest?prefix=F&count=-1", String.class);
+
+        assertEquals(HttpStatus.NOT_FOUND, invalidResponse.getStatusCode());
+    }
+
+    @Test
+    void shouldStreamSearchResults() {
+        Film film1 = Film.builder()
+                .name("Pulp Fiction")
+                .description("Film 1 is a test entity")
+                .releaseDate(LocalDate.parse("1994-05-21"))
+                .duration(154)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build();
+        Film film2 = Film.builder()
+                .name("Fight Club")
+                .description("Film 2 is a test entity")
+                .releaseDate(LocalDate.parse("1999-09-10"))
+                .duration(139)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build();
+        film1 = restTemplate.postForEntity(resource, film1, Film.class).getBody();
+        restTemplate.postForEntity(resource, film2, Film.class);
+
+        ResponseEntity<Film[]> response = restTemplate.getForEntity(
+                resource + "/search?query=pulp&by=title", Film[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertArrayEquals(new Film[]{film1}, response.getBody());
+
+        response = restTemplate.getForEntity(resource + "/search?query=matrix&by=title", Film[].class);
+
+        assertArrayEquals(new Film[0], response.getBody());
+    }
 }
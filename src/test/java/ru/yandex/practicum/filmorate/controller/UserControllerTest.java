@@ -11,10 +11,17 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.time.LocalDate;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -476,4 +483,155 @@ public class UserControllerTest {
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
+
+    @Test
+    void shouldGetFriendsFeed() {
+        User[] users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = restTemplate.postForEntity(resource, User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build(), User.class).getBody();
+            assertNotNull(users[i]);
+        }
+        addFriend(users[0], users[1]);
+        addFriend(users[1], users[2]);
+
+        ResponseEntity<Event[]> response = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/feed/friends", Event[].class);
+        Event[] feed = response.getBody();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(feed);
+        assertEquals(1, feed.length);
+        assertEquals(users[1].getId(), feed[0].getUserId());
+        assertEquals(users[2].getId(), feed[0].getEntityId());
+
+        addFriend(users[2], users[1]);
+        addFriend(users[0], users[2]);
+        feed = restTemplate.getForEntity(resource + "/" + users[0].getId() + "/feed/friends", Event[].class)
+                .getBody();
+
+        assertNotNull(feed);
+        assertEquals(2, feed.length);
+        assertEquals(users[2].getId(), feed[1].getUserId());
+
+        addFriend(users[1], users[0]);
+        feed = restTemplate.getForEntity(resource + "/" + users[0].getId() + "/feed/friends?limit=2", Event[].class)
+                .getBody();
+
+        assertNotNull(feed);
+        assertEquals(2, feed.length);
+        assertEquals(users[2].getId(), feed[0].getUserId());
+        assertEquals(users[1].getId(), feed[1].getUserId());
+        assertEquals(users[0].getId(), feed[1].getEntityId());
+
+        ResponseEntity<String> invalidResponse = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/feed/friends?limit=0", String.class);
+
+        assertEquals(HttpStatus.NOT_FOUND, invalidResponse.getStatusCode());
+    }
+
+    @Test
+    void shouldStreamUserFeedFromLastEventId() throws IOException {
+        User[] users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = restTemplate.postForEntity(resource, User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build(), User.class).getBody();
+            assertNotNull(users[i]);
+        }
+        addFriend(users[0], users[1]);
+        addFriend(users[0], users[2]);
+        Event[] feed = restTemplate.getForEntity(resource + "/" + users[0].getId() + "/feed", Event[].class)
+                .getBody();
+
+        assertNotNull(feed);
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + port + resource + "/" + users[0].getId() + "/feed/stream").openConnection();
+        connection.setRequestProperty("Last-Event-ID", String.valueOf(feed[0].getEventId()));
+        connection.setReadTimeout(5000);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            assertEquals("id:" + feed[1].getEventId(), reader.readLine());
+
+            restTemplate.exchange(
+                    resource + "/" + users[0].getId() + "/friends/" + users[1].getId(),
+                    HttpMethod.DELETE,
+                    HttpEntity.EMPTY,
+                    Void.class
+            );
+            String line = reader.readLine();
+            while (!line.startsWith("id:")) {
+                line = reader.readLine();
+            }
+
+            assertEquals("id:" + (feed[1].getEventId() + 1), line);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void shouldGetFriendSuggestionsByMutualFriends() {
+        User[] users = new User[6];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = restTemplate.postForEntity(resource, User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build(), User.class).getBody();
+            assertNotNull(users[i]);
+        }
+        addFriend(users[0], users[1]);
+        addFriend(users[0], users[2]);
+        addFriend(users[1], users[2]);
+        addFriend(users[1], users[3]);
+        addFriend(users[2], users[3]);
+        addFriend(users[2], users[4]);
+
+        ResponseEntity<User[]> response = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/friends/suggestions", User[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(new User[]{users[3], users[4]}, response.getBody());
+
+        addFriend(users[0], users[3]);
+        addFriend(users[1], users[5]);
+        response = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/friends/suggestions?count=1", User[].class);
+
+        assertArrayEquals(new User[]{users[4]}, response.getBody());
+
+        response = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/friends/suggestions", User[].class);
+
+        assertArrayEquals(new User[]{users[4], users[5]}, response.getBody());
+
+        ResponseEntity<String> invalidResponse = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/friends/suggestions?count=-1", String.class);
+
+        assertEquals(HttpStatus.NOT_FOUND, invalidResponse.getStatusCode());
+
+        invalidResponse = restTemplate.getForEntity(
+                resource + "/" + users[0].getId() + "/friends/suggestions?count=101", String.class);
+
+        assertEquals(HttpStatus.NOT_FOUND, invalidResponse.getStatusCode());
+    }
+
+    private void addFriend(User user, User friend) {
+        ResponseEntity<Void> response = restTemplate.exchange(
+                resource + "/" + user.getId() + "/friends/" + friend.getId(),
+                HttpMethod.PUT,
+                HttpEntity.EMPTY,
+                Void.class
+        );
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
 }
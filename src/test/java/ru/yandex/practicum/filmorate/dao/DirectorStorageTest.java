@@ -9,6 +9,8 @@ import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @AutoConfigureTestDatabase
@@ -51,6 +53,16 @@ public class DirectorStorageTest {
         assertEquals(director2, directorStorage.getDirectorById(1));
     }
 
+    @Test
+    void shouldUpdateOnlyGivenDirector() {
+        Director director1 = directorStorage.addDirector(new Director(0, "Test Name1"));
+        Director director2 = directorStorage.addDirector(new Director(0, "Test Name2"));
+        Director updatedDirector = new Director(director2.getId(), "Test Name2 Updated");
+
+        assertEquals(updatedDirector, directorStorage.updateDirector(updatedDirector));
+        assertEquals(List.of(director1, updatedDirector), directorStorage.getAll());
+    }
+
     @Test
     void shouldGetById() {
         Director director1 = new Director(1, "Test Name1");
@@ -22,10 +22,12 @@ import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -130,6 +132,68 @@ public class FeedStorageTest {
         feedStorage.addEvent(event);
         assertEquals(List.of(event), feedStorage.getUserFeed(1));
     }
-}
 
+    @Test
+    void shouldGetUserFeedPageAfterEvent() {
+        for (int i = 1; i <= 5; i++) {
+            feedStorage.addEvent(Event.builder()
+                    .userId(userToAdd.getId())
+                    .eventType(EventType.FRIEND)
+                    .operation(EventOperation.ADD)
+                    .entityId(i)
+                    .timestamp(Instant.now().toEpochMilli())
+                    .build());
+        }
+        List<Event> feed = feedStorage.getUserFeed(userToAdd.getId());
+
+        assertEquals(5, feed.size());
+        assertEquals(feed.subList(0, 2), feedStorage.getUserFeed(userToAdd.getId(), 0, 2));
+        assertEquals(feed.subList(2, 4), feedStorage.getUserFeed(userToAdd.getId(), feed.get(1).getEventId(), 2));
+        assertEquals(feed.subList(4, 5), feedStorage.getUserFeed(userToAdd.getId(), feed.get(3).getEventId(), 2));
+        assertEquals(Collections.emptyList(), feedStorage.getUserFeed(userToAdd.getId(), feed.get(4).getEventId(), 2));
+    }
+
+    @Test
+    void shouldWriteQueuedEventsInOrderBeforeReading() {
+        List<Event> events = new ArrayList<>();
+        for (int i = 1; i <= 250; i++) {
+            Event event = Event.builder()
+                    .userId(userToAdd.getId())
+                    .eventType(EventType.LIKE)
+                    .operation(EventOperation.ADD)
+                    .entityId(i)
+                    .timestamp(Instant.now().toEpochMilli())
+                    .build();
+            events.add(event);
+            feedStorage.addEvent(event);
+        }
+
+        assertEquals(events, feedStorage.getUserFeed(userToAdd.getId()));
+        assertEquals(1, events.get(0).getEventId());
+        assertEquals(250, events.get(249).getEventId());
+    }
+
+    @Test
+    void shouldKeepFlushingInBackgroundAfterBrokenEvent() throws InterruptedException {
+        feedStorage.addEvent(Event.builder()
+                .userId(userToAdd.getId())
+                .operation(EventOperation.ADD)
+                .entityId(1)
+                .timestamp(Instant.now().toEpochMilli())
+                .build());
+        Event event = Event.builder()
+                .userId(userToAdd.getId())
+                .eventType(EventType.LIKE)
+                .operation(EventOperation.ADD)
+                .entityId(2)
+                .timestamp(Instant.now().toEpochMilli())
+                .build();
+        feedStorage.addEvent(event);
+        for (int i = 0; i < 100 && event.getEventId() == null; i++) {
+            Thread.sleep(50);
+        }
 
+        assertNotNull(event.getEventId());
+        assertEquals(List.of(event), feedStorage.getUserFeed(userToAdd.getId()));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(properties = {"filmorate.feed.queue-capacity=1", "filmorate.feed.offer-timeout-ms=0",
+        "filmorate.feed.flush-interval-ms=600000"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FeedWriterTest {
+    private final FeedStorage feedStorage;
+    private final UserStorage userStorage;
+
+    @Test
+    void shouldWriteOnlyOwnEventWhenQueueIsFull() {
+        User user = userStorage.add(User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testUsername")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        Event queued = addEvent(user, 1);
+        Event direct = addEvent(user, 2);
+
+        assertNull(queued.getEventId());
+        assertNotNull(direct.getEventId());
+        assertEquals(List.of(direct, queued), feedStorage.getUserFeed(user.getId()));
+    }
+
+    private Event addEvent(User user, int entityId) {
+        Event event = Event.builder()
+                .userId(user.getId())
+                .eventType(EventType.LIKE)
+                .operation(EventOperation.ADD)
+                .entityId(entityId)
+                .timestamp(Instant.now().toEpochMilli())
+                .build();
+        feedStorage.addEvent(event);
+        return event;
+    }
+}
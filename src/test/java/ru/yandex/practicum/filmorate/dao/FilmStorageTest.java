@@ -6,10 +6,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.RatingMPA;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
@@ -21,8 +23,10 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -63,6 +67,41 @@ public class FilmStorageTest {
         assertEquals(film2, films.get(1));
     }
 
+    @Test
+    void shouldGetAllWithGenresAndDirectors() {
+        Director director1 = directorStorage.addDirector(new Director(0, "Director 1"));
+        Director director2 = directorStorage.addDirector(new Director(0, "Director 2"));
+        Film film1 = storage.add(Film.builder()
+                .name("Film 1")
+                .description("Film 1 is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(List.of(Genre.builder().id(6).build(), Genre.builder().id(2).build()))
+                .directors(List.of(director2, director1))
+                .build());
+        Film film2 = storage.add(Film.builder()
+                .name("Film 2")
+                .description("Film 2 is a test entity")
+                .releaseDate(LocalDate.parse("1995-10-20"))
+                .duration(190)
+                .mpa(new RatingMPA(5, "NC-17"))
+                .genres(Collections.emptyList())
+                .directors(List.of(director2))
+                .build());
+
+        List<Film> films = storage.getAll();
+
+        assertEquals(List.of(film1, film2), films);
+        assertEquals(
+                List.of(Genre.builder().id(2).name("Драма").build(), Genre.builder().id(6).name("Боевик").build()),
+                films.get(0).getGenres()
+        );
+        assertEquals(List.of(director1, director2), films.get(0).getDirectors());
+        assertEquals(Collections.emptyList(), films.get(1).getGenres());
+        assertEquals(List.of(director2), films.get(1).getDirectors());
+    }
+
     @Test
     void shouldAdd() {
         Film film = Film.builder()
@@ -107,6 +146,67 @@ public class FilmStorageTest {
         assertEquals(newFilm, updatedFilm);
     }
 
+    @Test
+    void shouldUpdateGenresAndDirectorsInOneTransaction() {
+        Director director1 = directorStorage.addDirector(new Director(0, "Director 1"));
+        Director director2 = directorStorage.addDirector(new Director(0, "Director 2"));
+        Film film = storage.add(Film.builder()
+                .name("Film")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build(),
+                        Genre.builder().id(2).build()))
+                .directors(List.of(director1))
+                .build());
+        storage.update(Film.builder()
+                .id(film.getId())
+                .name("Film")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(List.of(Genre.builder().id(2).build(), Genre.builder().id(3).build()))
+                .directors(List.of(director1, director2))
+                .build());
+        Film updatedFilm = storage.getFilmById(film.getId());
+
+        assertEquals(List.of(2, 3), updatedFilm.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals(List.of(director1, director2), updatedFilm.getDirectors());
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> storage.update(Film.builder()
+                .id(film.getId())
+                .name("Film Updated")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(List.of(Genre.builder().id(4).build()))
+                .directors(List.of(new Director(100, "Unknown")))
+                .build()));
+        Film notUpdatedFilm = storage.getFilmById(film.getId());
+
+        assertEquals("Film", notUpdatedFilm.getName());
+        assertEquals(updatedFilm.getGenres(), notUpdatedFilm.getGenres());
+        assertEquals(updatedFilm.getDirectors(), notUpdatedFilm.getDirectors());
+        assertEquals(List.of(), storage.search("updated", "title"));
+        assertEquals(List.of(), storage.getPopularsGenreAndYear(10, 4, -1));
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> storage.add(Film.builder()
+                .name("Film Added")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1990-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(Collections.emptyList())
+                .directors(List.of(new Director(100, "Unknown")))
+                .build()));
+
+        assertFalse(storage.exists(film.getId() + 1));
+        assertEquals(List.of(notUpdatedFilm), storage.getMostPopular(10));
+    }
+
     @Test
     void shouldNotUpdateWhenIncorrectId() {
         FilmNotFoundException e = Assertions.assertThrows(
@@ -192,6 +292,60 @@ public class FilmStorageTest {
         assertEquals(film1, mostPopular.get(1));
     }
 
+    @Test
+    void shouldGetMostPopularByGenreAndYear() {
+        Film film1 = storage.add(Film.builder()
+                .name("Film 1")
+                .description("Film 1 is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(List.of(Genre.builder().id(1).build()))
+                .directors(Collections.emptyList())
+                .build());
+        Film film2 = storage.add(Film.builder()
+                .name("Film 2")
+                .description("Film 2 is a test entity")
+                .releaseDate(LocalDate.parse("1985-01-01"))
+                .duration(190)
+                .mpa(new RatingMPA(5, "NC-17"))
+                .genres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                .directors(Collections.emptyList())
+                .build());
+        Film film3 = storage.add(Film.builder()
+                .name("Film 3")
+                .description("Film 3 is a test entity")
+                .releaseDate(LocalDate.parse("1995-10-20"))
+                .duration(100)
+                .mpa(new RatingMPA(2, "PG"))
+                .genres(List.of(Genre.builder().id(2).build()))
+                .directors(Collections.emptyList())
+                .build());
+        User user = userStorage.add(User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testUsername")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        likeStorage.addLike(film2.getId(), user.getId());
+        likeStorage.addLike(film3.getId(), user.getId());
+
+        assertEquals(List.of(film2, film3, film1), storage.getPopularsGenreAndYear(10, -1, -1));
+        assertEquals(List.of(film2, film1), storage.getPopularsGenreAndYear(10, 1, -1));
+        assertEquals(List.of(film2, film1), storage.getPopularsGenreAndYear(10, -1, 1985));
+        assertEquals(List.of(film2), storage.getPopularsGenreAndYear(10, 2, 1985));
+        assertEquals(List.of(film2), storage.getPopularsGenreAndYear(1, 1, 1985));
+
+        likeStorage.deleteLike(film2.getId(), user.getId());
+        film3.setReleaseDate(LocalDate.parse("1985-05-05"));
+        film3.setGenres(List.of(Genre.builder().id(1).name("Комедия").build()));
+        storage.update(film3);
+
+        assertEquals(List.of(film3, film1, film2), storage.getPopularsGenreAndYear(10, 1, 1985));
+        assertEquals(List.of(film2), storage.getPopularsGenreAndYear(10, 2, -1));
+        assertEquals(Collections.emptyList(), storage.getPopularsGenreAndYear(10, 2, 1995));
+    }
+
     @Test
     void shouldDeleteFilm() {
         FilmNotFoundException e = Assertions.assertThrows(
@@ -254,6 +408,52 @@ public class FilmStorageTest {
         assertEquals(film, commonFilms.get(0));
     }
 
+    @Test
+    void shouldGetCommonFilmsOrderedByPopularity() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            films.add(storage.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Film " + i + " is a test entity")
+                    .releaseDate(LocalDate.parse("1985-10-20"))
+                    .duration(90)
+                    .mpa(new RatingMPA(1, "G"))
+                    .genres(Collections.emptyList())
+                    .directors(Collections.emptyList())
+                    .build()));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(userStorage.add(User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build()));
+        }
+        for (Film film : films) {
+            likeStorage.addLike(film.getId(), users.get(0).getId());
+            likeStorage.addLike(film.getId(), users.get(1).getId());
+        }
+        likeStorage.addLike(films.get(2).getId(), users.get(2).getId());
+
+        assertEquals(List.of(films.get(2), films.get(0), films.get(1)),
+                storage.getCommonFilms(users.get(0).getId(), users.get(1).getId()));
+
+        likeStorage.deleteLike(films.get(0).getId(), users.get(1).getId());
+
+        assertEquals(List.of(films.get(2), films.get(1)),
+                storage.getCommonFilms(users.get(0).getId(), users.get(1).getId()));
+
+        likeStorage.deleteLike(films.get(2).getId(), users.get(2).getId());
+
+        assertEquals(List.of(), storage.getCommonFilms(users.get(0).getId(), users.get(2).getId()));
+
+        likeStorage.addLike(films.get(0).getId(), users.get(2).getId());
+
+        assertEquals(List.of(films.get(0)), storage.getCommonFilms(users.get(0).getId(), users.get(2).getId()));
+    }
+
     @Test
     public void searchForMovieByTitleTest() {
         directorStorage.addDirector(new Director(1, "DiReCtOrS bY sEaRcHiNg"));
@@ -360,6 +560,89 @@ public class FilmStorageTest {
         assertEquals(allFilm, foundFilm);
     }
 
+    @Test
+    void shouldSearchUpdatedFilmsOrderedByPopularity() {
+        Director director = directorStorage.addDirector(new Director(0, "Quentin Tarantino"));
+        Film film1 = storage.add(Film.builder()
+                .name("Pulp Fiction")
+                .description("Film 1 is a test entity")
+                .releaseDate(LocalDate.parse("1994-05-21"))
+                .duration(154)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(List.of(director))
+                .build());
+        Film film2 = storage.add(Film.builder()
+                .name("Fiction Story")
+                .description("Film 2 is a test entity")
+                .releaseDate(LocalDate.parse("2000-01-01"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build());
+        User user = userStorage.add(User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testUsername")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        likeStorage.addLike(film2.getId(), user.getId());
+
+        assertEquals(List.of(film2, film1), storage.search("FICTION", "title"));
+        assertEquals(List.of(film1), storage.search("p fic", "title"));
+        assertEquals(List.of(film1), storage.search("tin ta", "director"));
+        assertEquals(List.of(film2, film1), storage.search("fiction", "director,title"));
+        assertEquals(Collections.emptyList(), storage.search("fiction", "director"));
+
+        film1.setName("Jackie Brown");
+        film1.setDirectors(Collections.emptyList());
+        storage.update(film1);
+        assertEquals(List.of(film2), storage.search("fiction", "title"));
+        assertEquals(Collections.emptyList(), storage.search("tarantino", "director"));
+
+        storage.delete(film2.getId());
+        assertEquals(Collections.emptyList(), storage.search("fiction", "title"));
+        assertEquals(List.of(film1), storage.search("jackie", "title"));
+    }
+
+    @Test
+    void shouldFuzzySearchMisspelledQueries() {
+        Director director = directorStorage.addDirector(new Director(0, "Quentin Tarantino"));
+        Film film1 = storage.add(Film.builder()
+                .name("Pulp Fiction")
+                .description("Film 1 is a test entity")
+                .releaseDate(LocalDate.parse("1994-05-21"))
+                .duration(154)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(List.of(director))
+                .build());
+        Film film2 = storage.add(Film.builder()
+                .name("Pulp Fantasy")
+                .description("Film 2 is a test entity")
+                .releaseDate(LocalDate.parse("2000-01-01"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build());
+        storage.add(Film.builder()
+                .name("Matrix")
+                .description("Film 3 is a test entity")
+                .releaseDate(LocalDate.parse("1999-03-31"))
+                .duration(136)
+                .mpa(new RatingMPA(4, "R"))
+                .genres(Collections.emptyList())
+                .directors(Collections.emptyList())
+                .build());
+
+        assertEquals(Collections.emptyList(), storage.search("pulp fictoin", "title"));
+        assertEquals(List.of(film1, film2), storage.fuzzySearch("pulp fictoin", "title"));
+        assertEquals(List.of(film1), storage.fuzzySearch("tarantnio", "director"));
+        assertEquals(Collections.emptyList(), storage.fuzzySearch("tarantnio", "title"));
+    }
+
     @Test
     void shouldGetRecommendations() {
         Film filmToAdd = Film.builder()
@@ -414,6 +697,47 @@ public class FilmStorageTest {
         assertEquals(film2, recommendations.get(0));
     }
 
+    @Test
+    void shouldRankRecommendationsFromSeveralNeighbours() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            films.add(storage.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Film " + i + " is a test entity")
+                    .releaseDate(LocalDate.parse("1985-10-20"))
+                    .duration(90)
+                    .mpa(new RatingMPA(1, "G"))
+                    .genres(Collections.emptyList())
+                    .directors(Collections.emptyList())
+                    .build()));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(userStorage.add(User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build()));
+        }
+        likeStorage.addLike(films.get(0).getId(), users.get(0).getId());
+        likeStorage.addLike(films.get(1).getId(), users.get(0).getId());
+        likeStorage.addLike(films.get(0).getId(), users.get(1).getId());
+        likeStorage.addLike(films.get(0).getId(), users.get(2).getId());
+        likeStorage.addLike(films.get(1).getId(), users.get(2).getId());
+        likeStorage.addLike(films.get(2).getId(), users.get(2).getId());
+
+        assertEquals(List.of(films.get(1), films.get(2)), storage.getRecommendations(users.get(1).getId()));
+
+        userStorage.delete(users.get(0).getId());
+
+        assertEquals(List.of(films.get(1), films.get(2)), storage.getRecommendations(users.get(1).getId()));
+
+        storage.delete(films.get(1).getId());
+
+        assertEquals(List.of(films.get(2)), storage.getRecommendations(users.get(1).getId()));
+    }
+
     @Test
     void shouldGetRecommendationsEmptyList() {
         Film filmToAdd = Film.builder()
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(properties = {"filmorate.feed.timeline.max-followers=1", "filmorate.feed.timeline.cache-size=1"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FriendsTimelineTest {
+    private final FeedStorage feedStorage;
+    private final UserStorage userStorage;
+
+    @Test
+    void shouldMergeEventsOfPopularAndRegularFriends() {
+        User popular = addUser(1);
+        User regular = addUser(2);
+        User reader = addUser(3);
+        User other = addUser(4);
+        userStorage.addFriend(reader.getId(), popular.getId());
+        userStorage.addFriend(other.getId(), popular.getId());
+        userStorage.addFriend(reader.getId(), regular.getId());
+        Event first = addEvent(popular);
+        Event second = addEvent(regular);
+
+        assertEquals(List.of(first, second), feedStorage.getFriendsFeed(reader.getId(), 10));
+
+        Event third = addEvent(regular);
+        Event fourth = addEvent(popular);
+        addEvent(other);
+
+        assertEquals(List.of(first, second, third, fourth), feedStorage.getFriendsFeed(reader.getId(), 10));
+        assertEquals(List.of(third, fourth), feedStorage.getFriendsFeed(reader.getId(), 2));
+    }
+
+    @Test
+    void shouldReloadEvictedTimelines() {
+        User author = addUser(1);
+        User firstReader = addUser(2);
+        User secondReader = addUser(3);
+        userStorage.addFriend(firstReader.getId(), author.getId());
+        Event first = addEvent(author);
+
+        assertEquals(List.of(first), feedStorage.getFriendsFeed(firstReader.getId(), 10));
+        assertEquals(List.of(), feedStorage.getFriendsFeed(secondReader.getId(), 10));
+
+        Event second = addEvent(author);
+
+        assertEquals(List.of(first, second), feedStorage.getFriendsFeed(firstReader.getId(), 10));
+    }
+
+    private User addUser(int number) {
+        return userStorage.add(User.builder()
+                .email("test" + number + "@email.com")
+                .login("testLogin" + number)
+                .name("testUsername" + number)
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+    }
+
+    private Event addEvent(User user) {
+        Event event = Event.builder()
+                .userId(user.getId())
+                .eventType(EventType.LIKE)
+                .operation(EventOperation.ADD)
+                .entityId(1)
+                .timestamp(Instant.now().toEpochMilli())
+                .build();
+        feedStorage.addEvent(event);
+        return event;
+    }
+}
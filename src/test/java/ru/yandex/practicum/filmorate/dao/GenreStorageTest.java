@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exceptions.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -18,6 +19,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @AutoConfigureTestDatabase
@@ -27,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class GenreStorageTest {
     private final GenreStorage storage;
     private final FilmStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     void shouldGetAll() {
@@ -70,14 +73,24 @@ public class GenreStorageTest {
         assertEquals(Genre.builder().id(6).name("Боевик").build(), genre);
     }
 
+    @Test
+    void shouldGetGenreAddedAfterCacheLoad() {
+        jdbcTemplate.update("insert into genres (name) values ('Фантастика')");
+
+        assertEquals(Genre.builder().id(7).name("Фантастика").build(), storage.getGenreById(7));
+        assertEquals(7, storage.getAll().size());
+    }
+
     @Test
     void shouldNotGetGenreWhenIncorrectId() {
+        List<Genre> cached = storage.getAll();
         GenreNotFoundException e = Assertions.assertThrows(
                 GenreNotFoundException.class,
                 () -> storage.getGenreById(100)
         );
 
         assertEquals("Жанр с id=100 не найден.", e.getMessage());
+        assertSame(cached, storage.getAll());
     }
 
     @Test
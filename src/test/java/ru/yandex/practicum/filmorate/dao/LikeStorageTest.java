@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.RatingMPA;
@@ -14,7 +15,11 @@ import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -27,6 +32,7 @@ public class LikeStorageTest {
     private final LikeStorage storage;
     private final UserStorage userStorage;
     private final FilmStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     void shouldAddDeleteGetLikes() {
@@ -56,4 +62,77 @@ public class LikeStorageTest {
 
         assertTrue(likes.isEmpty());
     }
+
+    @Test
+    void shouldCountEachLikeOnce() {
+        Film film = filmStorage.add(Film.builder()
+                .name("Film")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .build());
+        User user1 = userStorage.add(User.builder()
+                .email("test1@email.com")
+                .login("testLogin1")
+                .name("testName1")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        User user2 = userStorage.add(User.builder()
+                .email("test2@email.com")
+                .login("testLogin2")
+                .name("testName2")
+                .birthday(LocalDate.parse("2001-05-25"))
+                .build());
+        storage.addLike(film.getId(), user1.getId());
+        storage.addLike(film.getId(), user1.getId());
+        storage.addLike(film.getId(), user2.getId());
+
+        assertEquals(2, getLikesCount(film.getId()));
+
+        storage.deleteLike(film.getId(), user1.getId());
+        storage.deleteLike(film.getId(), user1.getId());
+
+        assertEquals(1, getLikesCount(film.getId()));
+
+        userStorage.delete(user2.getId());
+
+        assertEquals(0, getLikesCount(film.getId()));
+    }
+
+    @Test
+    void shouldCountConcurrentLikesOnce() throws Exception {
+        Film film = filmStorage.add(Film.builder()
+                .name("Film")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .build());
+        User user = userStorage.add(User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testName")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> likes = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                likes.add(executor.submit(() -> storage.addLike(film.getId(), user.getId())));
+            }
+            for (Future<?> like : likes) {
+                like.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, getLikesCount(film.getId()));
+        assertEquals(List.of(user.getId()), storage.getLikes(film.getId()));
+    }
+
+    private int getLikesCount(int filmId) {
+        return jdbcTemplate.queryForObject("select likes_count from films where id = ?", Integer.class, filmId);
+    }
 }
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.like.MinHashIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(properties = "filmorate.recommendations.lsh.min-users=0")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class LshRecommendationsTest {
+    private final FilmStorage storage;
+    private final UserStorage userStorage;
+    private final LikeStorage likeStorage;
+    private final MinHashIndex minHashIndex;
+
+    @Test
+    void shouldRecommendFromLshCandidates() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            films.add(storage.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Film " + i + " is a test entity")
+                    .releaseDate(LocalDate.parse("1985-10-20"))
+                    .duration(90)
+                    .mpa(new RatingMPA(1, "G"))
+                    .genres(Collections.emptyList())
+                    .directors(Collections.emptyList())
+                    .build()));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(userStorage.add(User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build()));
+        }
+        for (int i = 0; i < 3; i++) {
+            likeStorage.addLike(films.get(i).getId(), users.get(0).getId());
+            likeStorage.addLike(films.get(i).getId(), users.get(1).getId());
+        }
+        likeStorage.addLike(films.get(3).getId(), users.get(1).getId());
+        likeStorage.addLike(films.get(5).getId(), users.get(2).getId());
+
+        assertEquals(Set.of(users.get(1).getId()), minHashIndex.getCandidates(users.get(0).getId()));
+        assertEquals(List.of(films.get(3)), storage.getRecommendations(users.get(0).getId()));
+
+        likeStorage.deleteLike(films.get(3).getId(), users.get(1).getId());
+
+        assertEquals(Collections.emptyList(), storage.getRecommendations(users.get(0).getId()));
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class MigrationTest {
+    private final Flyway flyway;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserStorage userStorage;
+
+    @Test
+    void shouldApplyOnlyPendingMigrations() {
+        User user = userStorage.add(User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testUsername")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+
+        assertEquals(List.of("1", "2", "3", "4"), jdbcTemplate.queryForList(
+                "select \"version\" from \"flyway_schema_history\" " +
+                        "where \"success\" and \"version\" is not null order by \"installed_rank\"",
+                String.class));
+        assertEquals(0, flyway.migrate().migrationsExecuted);
+        assertEquals(List.of(user), userStorage.getAll());
+        assertEquals(5, jdbcTemplate.queryForObject("select count(*) from mpa_rating", Integer.class));
+    }
+
+    /*
+        База, созданная исходной схемой без истории миграций: таблицы уже есть, счетчиков и ключей нет
+     */
+    @Test
+    void shouldMigrateDatabaseCreatedByOriginalSchema() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1", "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__schema.sql"),
+                new ClassPathResource("db/migration/V2__reference_data.sql")).execute(dataSource);
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.update("insert into users (email, login, name, birthday) values " +
+                "('a@email.com', 'a', 'a', '2000-01-01'), ('b@email.com', 'b', 'b', '2000-01-01')");
+        legacy.update("insert into films (name, description, release_date, duration, mpa_id) " +
+                "values ('Film', 'Film is a test entity', '2000-01-01', 90, 1)");
+        legacy.update("insert into film_likes (film_id, user_id) values (1, 1), (1, 2), (1, 2)");
+        legacy.update("insert into reviews (content, is_positive, user_id, film_id) values ('Review', true, 1, 1)");
+        legacy.update("insert into review_likes (review_id, user_id, liked) " +
+                "values (1, 1, false), (1, 1, true), (1, 2, true)");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+
+        assertEquals(2, legacy.queryForObject("select likes_count from films where id = 1", Integer.class));
+        assertEquals(2, legacy.queryForObject("select useful from reviews where id = 1", Integer.class));
+        assertEquals(2, legacy.queryForObject("select count(*) from film_likes", Integer.class));
+        assertThrows(DuplicateKeyException.class,
+                () -> legacy.update("insert into friends (user_id, friend_id) values (1, 2), (1, 2)"));
+        assertEquals(5, legacy.queryForObject("select count(*) from mpa_rating", Integer.class));
+    }
+}
@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.RatingMPADbStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.reviewlikes.ReviewLikesStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Запросы хранилищ с условием или ограничением числа строк должны выполняться по индексу.
+    Все методы хранилищ вызываются с записью выполненного SQL, затем для каждого записанного запроса
+    с его параметрами проверяется план H2: в нем не должно быть полного просмотра таблицы (tableScan).
+    Запросы без where и limit читают всю таблицу намеренно и не проверяются
+ */
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class QueryPlanTest {
+    private final SqlRecorder sqlRecorder;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeStorage likeStorage;
+    private final GenreStorage genreStorage;
+    private final GenreDbStorage genreDbStorage;
+    private final RatingMPADbStorage ratingMPADbStorage;
+    private final DirectorStorage directorStorage;
+    private final ReviewStorage reviewStorage;
+    private final ReviewLikesStorage reviewLikesStorage;
+    private final FeedStorage feedStorage;
+
+    @TestConfiguration
+    static class RecorderConfiguration {
+        @Bean
+        static SqlRecorder sqlRecorder() {
+            return new SqlRecorder();
+        }
+    }
+
+    @Test
+    void shouldUseIndexesInStorageQueries() {
+        sqlRecorder.start();
+        callStorages();
+        Map<String, Object[]> statements = sqlRecorder.stop();
+
+        List<String> scans = new ArrayList<>();
+        int checked = 0;
+        for (Map.Entry<String, Object[]> statement : statements.entrySet()) {
+            String sql = statement.getKey().toLowerCase();
+            if (!sql.contains(" where ") && !sql.contains(" limit ")) {
+                continue;
+            }
+            checked++;
+            String plan = jdbcTemplate.queryForObject("explain " + statement.getKey(), String.class,
+                    statement.getValue());
+            if (plan.contains("tableScan")) {
+                scans.add(plan);
+            }
+        }
+
+        assertTrue(checked > 40, "Проверено запросов: " + checked);
+        assertEquals(List.of(), scans);
+    }
+
+    private void callStorages() {
+        User user = userStorage.add(user(1));
+        User friend = userStorage.add(user(2));
+        userStorage.update(user);
+        userStorage.getUserById(user.getId());
+        userStorage.exists(user.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.getFriends(user.getId());
+        userStorage.getFollowerIds(friend.getId());
+        userStorage.getCommonFriends(user.getId(), friend.getId());
+        userStorage.getFriendSuggestionIds(user.getId(), 10);
+        userStorage.getUsersByIds(List.of(user.getId(), friend.getId()));
+        userStorage.streamAll(u -> {
+        });
+
+        Director director = directorStorage.addDirector(new Director(0, "Director"));
+        directorStorage.updateDirector(director);
+        directorStorage.getDirectorById(director.getId());
+        Film film = filmStorage.add(Film.builder()
+                .name("Film")
+                .description("Film is a test entity")
+                .releaseDate(LocalDate.parse("1985-10-20"))
+                .duration(90)
+                .mpa(new RatingMPA(1, "G"))
+                .genres(List.of(Genre.builder().id(1).build()))
+                .directors(List.of(director))
+                .build());
+        film.setGenres(List.of(Genre.builder().id(2).build()));
+        filmStorage.update(film);
+        filmStorage.getFilmById(film.getId());
+        filmStorage.exists(film.getId());
+        filmStorage.streamAll(f -> {
+        });
+        filmStorage.streamSearch("film", "director,title", false, f -> {
+        });
+        filmStorage.getMostPopular(10);
+        filmStorage.getDirectorsFilms(director.getId(), "year");
+        filmStorage.getDirectorsFilms(director.getId(), "likes");
+        filmStorage.getPopularsGenreAndYear(10, 2, 1985);
+        genreStorage.getFilmsGenres(Set.of(film.getId()));
+        genreDbStorage.getFilmsGenres(Set.of(film.getId()));
+        genreDbStorage.getFilmGenres(film.getId());
+        genreDbStorage.getGenreById(1);
+        directorStorage.getFilmDirectors(film.getId());
+        ratingMPADbStorage.getRatingMPAById(1);
+
+        likeStorage.addLike(film.getId(), user.getId());
+        likeStorage.addLike(film.getId(), friend.getId());
+        likeStorage.getLikes(film.getId());
+        likeStorage.getListsOfFavoriteFilms(user.getId());
+        filmStorage.getCommonFilms(user.getId(), friend.getId());
+        filmStorage.getRecommendations(user.getId());
+        likeStorage.deleteLike(film.getId(), user.getId());
+
+        Review review = reviewStorage.add(Review.builder()
+                .content("Review")
+                .isPositive(true)
+                .userId(user.getId())
+                .filmId(film.getId())
+                .build());
+        reviewStorage.update(review);
+        reviewStorage.getReviewById(review.getReviewId());
+        reviewStorage.getSomeReviews(film.getId(), 10);
+        reviewStorage.getSomeReviews(0, 10);
+        reviewLikesStorage.addLike(review.getReviewId(), friend.getId(), true);
+        reviewLikesStorage.deleteLike(review.getReviewId(), friend.getId(), true);
+        reviewLikesStorage.addLike(review.getReviewId(), friend.getId(), false);
+
+        feedStorage.addEvent(Event.builder()
+                .userId(friend.getId())
+                .eventType(EventType.LIKE)
+                .operation(EventOperation.ADD)
+                .entityId(film.getId())
+                .timestamp(Instant.now().toEpochMilli())
+                .build());
+        feedStorage.getUserFeed(friend.getId());
+        feedStorage.getUserFeed(friend.getId(), 0, 10);
+        feedStorage.resetFriendsFeed(user.getId());
+        feedStorage.getFriendsFeed(user.getId(), 10);
+
+        userStorage.deleteFriend(user.getId(), friend.getId());
+        genreDbStorage.deleteFilmGenres(film.getId());
+        reviewStorage.delete(review.getReviewId());
+        userStorage.delete(friend.getId());
+        filmStorage.delete(film.getId());
+        directorStorage.deleteDirector(director.getId());
+    }
+
+    private static User user(int number) {
+        return User.builder()
+                .email("test" + number + "@email.com")
+                .login("testLogin" + number)
+                .name("testUsername" + number)
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build();
+    }
+}
@@ -17,7 +17,12 @@ import ru.yandex.practicum.filmorate.storage.reviewlikes.ReviewLikesStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -83,4 +88,58 @@ public class ReviewLikesStorageTest {
 
         assertEquals(0, review.getUseful());
     }
+
+    @Test
+    void shouldKeepUsefulConsistentWithVotes() {
+        User user2 = userStorage.add(User.builder()
+                .email("test2@email.com")
+                .login("testLogin2")
+                .name("testUsername2")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        Review review = reviewStorage.add(Review.builder()
+                .content("Review")
+                .isPositive(true)
+                .filmId(1)
+                .userId(1)
+                .build());
+        reviewLikesStorage.addLike(review.getReviewId(), 1, true);
+        reviewLikesStorage.addLike(review.getReviewId(), 1, true);
+        reviewLikesStorage.addLike(review.getReviewId(), user2.getId(), true);
+
+        assertEquals(2, reviewStorage.getReviewById(review.getReviewId()).getUseful());
+
+        reviewLikesStorage.addLike(review.getReviewId(), 1, false);
+        reviewLikesStorage.deleteLike(review.getReviewId(), 1, true);
+
+        assertEquals(0, reviewStorage.getReviewById(review.getReviewId()).getUseful());
+
+        userStorage.delete(user2.getId());
+
+        assertEquals(-1, reviewStorage.getReviewById(review.getReviewId()).getUseful());
+    }
+
+    @Test
+    void shouldCountConcurrentVotesOnce() throws Exception {
+        Review review = reviewStorage.add(Review.builder()
+                .content("Review")
+                .isPositive(true)
+                .filmId(1)
+                .userId(1)
+                .build());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> votes = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                votes.add(executor.submit(() -> reviewLikesStorage.addLike(review.getReviewId(), 1, true)));
+            }
+            for (Future<?> vote : votes) {
+                vote.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, reviewStorage.getReviewById(review.getReviewId()).getUseful());
+    }
 }
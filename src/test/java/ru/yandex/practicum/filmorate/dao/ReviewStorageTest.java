@@ -8,11 +8,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ReviewNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.RatingMPA;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
@@ -31,6 +33,7 @@ public class ReviewStorageTest {
     private final ReviewStorage reviewStorage;
     private final UserStorage userStorage;
     private final FilmStorage filmStorage;
+    private final ReviewService reviewService;
 
     @BeforeEach
     void addUserAndFilm() {
@@ -181,4 +184,40 @@ public class ReviewStorageTest {
         assertEquals(1, reviews.size());
         assertEquals(review, reviews.get(0));
     }
+
+    @Test
+    void shouldKeepCachedReviewsOrderedAfterChanges() {
+        Review first = reviewService.add(Review.builder()
+                .content("First review")
+                .isPositive(true)
+                .filmId(1)
+                .userId(1)
+                .build());
+        Review second = reviewService.add(Review.builder()
+                .content("Second review")
+                .isPositive(false)
+                .filmId(1)
+                .userId(1)
+                .build());
+
+        assertEquals(List.of(first, second), reviewService.getReviewByFilmId(1, 10));
+        assertEquals(List.of(first), reviewService.getReviewByFilmId(1, 1));
+
+        reviewService.addLike(second.getReviewId(), 1);
+        List<Review> reviews = reviewService.getReviewByFilmId(1, 10);
+
+        assertEquals(List.of(second.getReviewId(), first.getReviewId()),
+                List.of(reviews.get(0).getReviewId(), reviews.get(1).getReviewId()));
+        assertEquals(1, reviews.get(0).getUseful());
+        assertEquals(reviewStorage.getSomeReviews(0, 10), reviewService.getReviewByFilmId(0, 10));
+
+        reviewService.delete(second.getReviewId());
+
+        assertEquals(List.of(first), reviewService.getReviewByFilmId(1, 10));
+
+        filmStorage.delete(1);
+
+        Assertions.assertThrows(FilmNotFoundException.class, () -> reviewService.getReviewByFilmId(1, 10));
+        assertEquals(Collections.emptyList(), reviewService.getReviewByFilmId(0, 10));
+    }
 }
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Запись SQL, который выполняют хранилища. Источник данных оборачивается прокси, который на время
+    записи запоминает каждый различный запрос вместе с параметрами первого выполнения
+ */
+public class SqlRecorder implements BeanPostProcessor {
+    private final Map<String, Object[]> statements = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile boolean recording;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource) {
+            DataSource dataSource = (DataSource) bean;
+            return proxy(DataSource.class, (method, args) -> {
+                Object result = invoke(dataSource, method, args);
+                return method.getName().equals("getConnection") ? connection((Connection) result) : result;
+            });
+        }
+        return bean;
+    }
+
+    public void start() {
+        statements.clear();
+        recording = true;
+    }
+
+    public Map<String, Object[]> stop() {
+        recording = false;
+        synchronized (statements) {
+            return new LinkedHashMap<>(statements);
+        }
+    }
+
+    private Connection connection(Connection connection) {
+        return proxy(Connection.class, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (method.getName().equals("prepareStatement")) {
+                return preparedStatement((PreparedStatement) result, (String) args[0]);
+            }
+            if (method.getName().equals("createStatement")) {
+                return statement((Statement) result);
+            }
+            return result;
+        });
+    }
+
+    private PreparedStatement preparedStatement(PreparedStatement statement, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                record(sql, parameters.values().toArray());
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private Statement statement(Statement statement) {
+        return proxy(Statement.class, (method, args) -> {
+            if ((method.getName().startsWith("execute") || method.getName().equals("addBatch"))
+                    && args != null && args[0] instanceof String) {
+                record((String) args[0], new Object[0]);
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private void record(String sql, Object[] parameters) {
+        if (recording) {
+            statements.putIfAbsent(sql, parameters);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method, args));
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.storage.TableInsert;
+import ru.yandex.practicum.filmorate.storage.TableInserts;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class TableInsertsTest {
+    private final JdbcTemplate jdbcTemplate;
+    private final TableInserts tableInserts;
+
+    @Test
+    void shouldInsertRowAndReturnGeneratedId() {
+        int id = tableInserts.get("users").insert(userRow("first"));
+
+        assertEquals(1, id);
+        assertEquals(userRow("first"), readUser(id));
+    }
+
+    @Test
+    void shouldInsertBatchAndReturnIdsInRowOrder() {
+        tableInserts.get("users").insert(userRow("first"));
+        List<Map<String, Object>> rows = List.of(userRow("second"), userRow("third"), userRow("fourth"));
+
+        int[] ids = tableInserts.get("users").insertBatch(rows);
+
+        assertArrayEquals(new int[]{2, 3, 4}, ids);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(rows.get(i), readUser(ids[i]));
+        }
+        assertArrayEquals(new int[0], tableInserts.get("users").insertBatch(List.of()));
+    }
+
+    @Test
+    void shouldShareInsertBetweenThreads() throws Exception {
+        TableInsert users = tableInserts.get("users");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                String login = "user" + i;
+                futures.add(executor.submit(() -> users.insert(userRow(login))));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Integer> future : futures) {
+                ids.add(future.get());
+            }
+
+            assertEquals(IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toSet()), ids);
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(userRow("user" + i), readUser(futures.get(i).get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRejectUnknownTable() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> tableInserts.get("genres"));
+
+        assertEquals("Нет подготовленной вставки для таблицы genres", e.getMessage());
+    }
+
+    private Map<String, Object> readUser(int id) {
+        return jdbcTemplate.queryForObject("select * from users where id = ?", (rs, rowNum) -> {
+            Map<String, Object> values = new HashMap<>();
+            values.put("email", rs.getString("email"));
+            values.put("login", rs.getString("login"));
+            values.put("name", rs.getString("name"));
+            values.put("birthday", rs.getDate("birthday").toLocalDate());
+            return values;
+        }, id);
+    }
+
+    private static Map<String, Object> userRow(String login) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("email", login + "@email.com");
+        values.put("login", login);
+        values.put("name", login);
+        values.put("birthday", LocalDate.parse("2000-05-25"));
+        return values;
+    }
+}
@@ -6,12 +6,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -22,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class UserStorageTest {
     private final UserStorage storage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     void shouldGetAll() {
@@ -198,4 +202,66 @@ public class UserStorageTest {
         );
         assertEquals("Пользователь с id=1 не найден.", e.getMessage());
     }
+
+    @Test
+    void shouldRemoveDeletedUserFromFriendLists() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(storage.add(User.builder()
+                    .email("test" + i + "@email.com")
+                    .login("testLogin" + i)
+                    .name("testUsername" + i)
+                    .birthday(LocalDate.parse("2000-05-25"))
+                    .build()));
+        }
+        storage.addFriend(users.get(0).getId(), users.get(2).getId());
+        storage.addFriend(users.get(0).getId(), users.get(1).getId());
+        storage.addFriend(users.get(1).getId(), users.get(2).getId());
+
+        assertEquals(List.of(users.get(1), users.get(2)), storage.getFriends(users.get(0).getId()));
+        assertEquals(List.of(users.get(0).getId(), users.get(1).getId()),
+                storage.getFollowerIds(users.get(2).getId()));
+
+        storage.delete(users.get(2).getId());
+
+        assertEquals(List.of(users.get(1)), storage.getFriends(users.get(0).getId()));
+        assertEquals(Collections.emptyList(), storage.getCommonFriends(users.get(0).getId(), users.get(1).getId()));
+    }
+
+    @Test
+    void shouldCheckUserExists() {
+        User user = storage.add(User.builder()
+                .email("test@email.com")
+                .login("testLogin")
+                .name("testUsername")
+                .birthday(LocalDate.parse("2000-05-25"))
+                .build());
+        jdbcTemplate.update("insert into users (id, email, login, name, birthday) values (100, 'db@email.com', " +
+                "'dbLogin', 'dbUsername', '2000-05-25')");
+
+        Assertions.assertTrue(storage.exists(user.getId()));
+        Assertions.assertTrue(storage.exists(100));
+        Assertions.assertFalse(storage.exists(101));
+        Assertions.assertFalse(storage.exists(-1));
+
+        storage.delete(user.getId());
+
+        Assertions.assertFalse(storage.exists(user.getId()));
+    }
+
+    @Test
+    void shouldStreamAllUsersPageByPage() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 2001; i++) {
+            rows.add(new Object[]{i, "test" + i + "@email.com", "testLogin" + i, "testUsername" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, email, login, name, birthday) " +
+                "values (?, ?, ?, ?, '2000-05-25')", rows);
+        List<User> streamed = new ArrayList<>();
+
+        storage.streamAll(streamed::add);
+
+        assertEquals(storage.getAll(), streamed);
+        assertEquals(2001, streamed.get(2000).getId());
+    }
 }